@@ -0,0 +1,314 @@
+package cn.pupperclient.skimca.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates an index of {@code @EventTarget} handlers at compile time. <br/>
+ * For every class declaring handler methods, a {@code <Class>_EventIndex} implementation of
+ * {@code EventHandlerIndex} is generated next to it. It instantiates the class and registers
+ * each handler as a lambda calling the method directly. All generated indexes are listed in
+ * {@code META-INF/services}, so {@code SkimcaEventManager.registerIndexed} can find them with
+ * a {@link java.util.ServiceLoader} instead of scanning the classpath.
+ */
+@SupportedAnnotationTypes(EventTargetProcessor.EVENT_TARGET)
+public class EventTargetProcessor extends AbstractProcessor {
+
+    static final String EVENT_TARGET = "cn.pupperclient.skimca.event.EventTarget";
+
+    private static final String EVENT = "cn.pupperclient.skimca.event.Event";
+    private static final String INDEX_INTERFACE = "cn.pupperclient.skimca.event.EventHandlerIndex";
+    private static final String MANAGER = "cn.pupperclient.skimca.event.SkimcaEventManager";
+    private static final String SERVICE_FILE = "META-INF/services/" + INDEX_INTERFACE;
+
+    /** Handler methods per declaring class, collected across rounds. */
+    private final Map<TypeElement, List<ExecutableElement>> handlers = new LinkedHashMap<>();
+
+    /** Fully qualified names of the generated index classes. */
+    private final Set<String> generated = new LinkedHashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement eventTarget = processingEnv.getElementUtils().getTypeElement(EVENT_TARGET);
+
+        if (eventTarget != null) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(eventTarget)) {
+                if (element.getKind() == ElementKind.METHOD) {
+                    handlers.computeIfAbsent((TypeElement) element.getEnclosingElement(), k -> new ArrayList<>())
+                            .add((ExecutableElement) element);
+                }
+            }
+        }
+
+        if (!roundEnv.processingOver()) {
+            for (Map.Entry<TypeElement, List<ExecutableElement>> entry : handlers.entrySet()) {
+                generateIndex(entry.getKey(), entry.getValue());
+            }
+            handlers.clear();
+        } else if (!generated.isEmpty()) {
+            writeServiceFile();
+        }
+
+        return false;
+    }
+
+    private void generateIndex(TypeElement type, List<ExecutableElement> methods) {
+        if (!isReachable(type)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Class is not accessible from its package, so its @EventTarget methods are not indexed; "
+                            + "register it explicitly", type);
+            return;
+        }
+
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String typeName = type.getQualifiedName().toString();
+        String indexName = flatName(type, packageName) + "_EventIndex";
+        String indexQualifiedName = packageName.isEmpty() ? indexName : packageName + "." + indexName;
+
+        List<ExecutableElement> valid = new ArrayList<>();
+        boolean reflective = false;
+
+        for (ExecutableElement method : methods) {
+            if (method.getParameters().size() != 1) {
+                continue;
+            }
+            if (!isEventParameter(method.getParameters().get(0).asType())) {
+                // Same rule as SkimcaEventManager.register, which logs and skips such methods
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "@EventTarget parameter is not an Event subclass or interface, the method is not registered",
+                        method);
+                continue;
+            }
+            if (method.getModifiers().contains(Modifier.PRIVATE)) {
+                reflective = true;
+            }
+            valid.add(method);
+        }
+
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n");
+        source.append("public final class ").append(indexName).append(" implements ").append(INDEX_INTERFACE)
+                .append(" {\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public Class<?> handlerClass() {\n");
+        source.append("        return ").append(typeName).append(".class;\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public Object newInstance() {\n");
+        source.append("        return ").append(canInstantiate(type) ? "new " + typeName + "()" : "null").append(";\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public void register(").append(MANAGER).append(" manager, Object instance) {\n");
+
+        if (reflective) {
+            // Private handlers cannot be called from generated code
+            source.append("        manager.register(instance);\n");
+        } else {
+            source.append("        ").append(typeName).append(" handler = (").append(typeName).append(") instance;\n");
+            for (ExecutableElement method : valid) {
+                appendListener(source, type, method);
+            }
+        }
+
+        source.append("    }\n");
+        source.append("}\n");
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(indexQualifiedName, type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+            generated.add(indexQualifiedName);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to generate event index " + indexQualifiedName + ": " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * Returns whether a handler parameter can receive events: a subtype of {@code Event},
+     * or an interface events may implement.
+     */
+    private boolean isEventParameter(TypeMirror parameter) {
+        if (parameter.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+
+        if (((DeclaredType) parameter).asElement().getKind() == ElementKind.INTERFACE) {
+            return true;
+        }
+
+        TypeElement event = processingEnv.getElementUtils().getTypeElement(EVENT);
+        return event != null && processingEnv.getTypeUtils().isSubtype(
+                processingEnv.getTypeUtils().erasure(parameter),
+                processingEnv.getTypeUtils().erasure(event.asType()));
+    }
+
+    private void appendListener(StringBuilder source, TypeElement type, ExecutableElement method) {
+        TypeMirror parameter = processingEnv.getTypeUtils().erasure(method.getParameters().get(0).asType());
+        String eventType = parameter.toString();
+        String name = method.getSimpleName().toString();
+        String receiver = method.getModifiers().contains(Modifier.STATIC)
+                ? type.getQualifiedName().toString()
+                : "handler";
+
+        source.append("        manager.registerListener(handler, ").append(eventType).append(".class, \"")
+                .append(type.getQualifiedName()).append('#').append(name).append("\",\n");
+        String call = receiver + "." + name + "((" + eventType + ") event)";
+
+        if (method.getThrownTypes().isEmpty()) {
+            source.append("                event -> ").append(call).append(",\n");
+        } else {
+            // EventListener cannot throw checked exceptions, rethrow them unchecked like reflective dispatch
+            source.append("                event -> {\n");
+            source.append("                    try {\n");
+            source.append("                        ").append(call).append(";\n");
+            source.append("                    } catch (RuntimeException | Error e) {\n");
+            source.append("                        throw e;\n");
+            source.append("                    } catch (Throwable t) {\n");
+            source.append("                        throw new IllegalStateException(t);\n");
+            source.append("                    }\n");
+            source.append("                },\n");
+        }
+        source.append("                ").append(annotationArguments(method)).append(");\n");
+    }
+
+    /**
+     * Renders the {@code @EventTarget} attributes of a method as arguments for
+     * {@code registerListener}, in declaration order, with defaults applied.
+     */
+    private String annotationArguments(ExecutableElement method) {
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            TypeElement annotation = (TypeElement) mirror.getAnnotationType().asElement();
+            if (!annotation.getQualifiedName().contentEquals(EVENT_TARGET)) {
+                continue;
+            }
+
+            Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+                    processingEnv.getElementUtils().getElementValuesWithDefaults(mirror);
+
+            List<String> arguments = new ArrayList<>();
+            for (ExecutableElement attribute : ElementFilter.methodsIn(annotation.getEnclosedElements())) {
+                arguments.add(render(values.get(attribute)));
+            }
+            return String.join(", ", arguments);
+        }
+
+        throw new IllegalStateException("Missing @EventTarget on " + method);
+    }
+
+    private static String render(AnnotationValue value) {
+        Object raw = value.getValue();
+
+        if (raw instanceof VariableElement constant) {
+            TypeElement enumType = (TypeElement) constant.getEnclosingElement();
+            return enumType.getQualifiedName() + "." + constant.getSimpleName();
+        }
+
+        return value.toString();
+    }
+
+    private void writeServiceFile() {
+        Filer filer = processingEnv.getFiler();
+
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            try (Writer writer = file.openWriter()) {
+                for (String name : generated) {
+                    writer.write(name);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to write " + SERVICE_FILE + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns whether generated code in the same package can name the type.
+     */
+    private static boolean isReachable(TypeElement type) {
+        Element current = type;
+
+        while (current instanceof TypeElement typeElement) {
+            if (typeElement.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (typeElement.getNestingKind() == NestingKind.LOCAL
+                    || typeElement.getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+            current = typeElement.getEnclosingElement();
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns whether the type can be created with {@code new Type()} from its package.
+     */
+    private static boolean canInstantiate(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT) || type.getKind() != ElementKind.CLASS) {
+            return false;
+        }
+
+        if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+            return false;
+        }
+
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String flatName(TypeElement type, String packageName) {
+        String qualified = type.getQualifiedName().toString();
+        String simple = packageName.isEmpty() ? qualified : qualified.substring(packageName.length() + 1);
+        return simple.replace('.', '_');
+    }
+}
@@ -0,0 +1,104 @@
+package cn.pupperclient.skimca.benchmark;
+
+import cn.pupperclient.skimca.event.Event;
+import cn.pupperclient.skimca.event.EventTarget;
+import cn.pupperclient.skimca.event.SkimcaEventManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link SkimcaEventManager#call} with the reflective {@code Method.invoke}
+ * dispatch it replaced, for a per-frame event with several handlers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventDispatchBenchmark {
+
+    private final SkimcaEventManager manager = new SkimcaEventManager();
+    private final FrameEvent event = new FrameEvent();
+
+    private Listeners listeners;
+    private Method[] methods;
+
+    @Setup
+    public void setup() {
+        listeners = new Listeners();
+        manager.register(listeners);
+
+        List<Method> annotated = new ArrayList<>();
+        for (Method method : Listeners.class.getDeclaredMethods()) {
+            if (method.isAnnotationPresent(EventTarget.class)) {
+                method.setAccessible(true);
+                annotated.add(method);
+            }
+        }
+        methods = annotated.toArray(new Method[0]);
+    }
+
+    @Benchmark
+    public void compiled(Blackhole blackhole) {
+        manager.call(event);
+        blackhole.consume(listeners.counter);
+    }
+
+    @Benchmark
+    public void reflective(Blackhole blackhole) throws Exception {
+        for (Method method : methods) {
+            method.invoke(listeners, event);
+        }
+        blackhole.consume(listeners.counter);
+    }
+
+    public static class FrameEvent extends Event {
+    }
+
+    public static class Listeners {
+        long counter;
+
+        @EventTarget(priority = EventTarget.Priority.HIGHEST)
+        public void first(FrameEvent event) {
+            counter++;
+        }
+
+        @EventTarget(priority = EventTarget.Priority.HIGH)
+        public void second(FrameEvent event) {
+            counter += 2;
+        }
+
+        @EventTarget
+        public void third(FrameEvent event) {
+            counter += 3;
+        }
+
+        @EventTarget
+        private void fourth(FrameEvent event) {
+            counter ^= 4;
+        }
+
+        @EventTarget(priority = EventTarget.Priority.LOW)
+        public void fifth(FrameEvent event) {
+            counter += 5;
+        }
+
+        @EventTarget(priority = EventTarget.Priority.LOWEST)
+        public void sixth(FrameEvent event) {
+            counter += 6;
+        }
+
+        @EventTarget(priority = EventTarget.Priority.MONITOR)
+        public void seventh(FrameEvent event) {
+            counter -= 7;
+        }
+
+        @EventTarget(ignoreCancelled = true)
+        public void eighth(FrameEvent event) {
+            counter += 8;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package cn.pupperclient.skimca.benchmark;
+
+import cn.pupperclient.skimca.event.Event;
+import cn.pupperclient.skimca.event.EventTarget;
+import cn.pupperclient.skimca.event.SkimcaEventManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SkimcaEventManager#call} with the handler count of a client with many
+ * HUD modules, each listening to the per-frame event at its own priority. Handlers of
+ * other event types are registered as well, so the lookup sees a realistic handler map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HudEventBenchmark {
+
+    private static final EventTarget.Priority[] PRIORITIES = EventTarget.Priority.values();
+
+    @Param({"32", "256"})
+    public int handlers;
+
+    @Param({"false", "true"})
+    public boolean profiling;
+
+    private final SkimcaEventManager manager = new SkimcaEventManager();
+    private final FrameEvent frameEvent = new FrameEvent();
+    private final TickEvent tickEvent = new TickEvent();
+
+    private long[] counters;
+    private long frame;
+
+    @Setup
+    public void setup() {
+        counters = new long[handlers];
+        manager.setProfiling(profiling);
+
+        for (int i = 0; i < handlers; i++) {
+            int index = i;
+            EventTarget.Priority priority = PRIORITIES[i % PRIORITIES.length];
+
+            manager.registerListener(this, FrameEvent.class, "hud#frame" + i,
+                    event -> counters[index] += ((FrameEvent) event).partialTicks > 0.5f ? 2 : 1,
+                    priority, i % 4 == 0);
+            manager.registerListener(this, TickEvent.class, "hud#tick" + i,
+                    event -> counters[index]++, priority, false);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.clear();
+    }
+
+    /**
+     * Dispatches the per-frame event to every HUD handler.
+     */
+    @Benchmark
+    public void callFrame(Blackhole blackhole) {
+        frameEvent.partialTicks = (frameEvent.partialTicks + 0.37f) % 1f;
+        manager.call(frameEvent);
+        blackhole.consume(counters[0]);
+    }
+
+    /**
+     * Dispatches a frame and, every third frame, a client tick, like the game loop at 60 FPS.
+     */
+    @Benchmark
+    public void callFrameAndTick(Blackhole blackhole) {
+        callFrame(blackhole);
+        if (frame++ % 3 == 0) {
+            manager.call(tickEvent);
+        }
+        blackhole.consume(counters[handlers - 1]);
+    }
+
+    public static class FrameEvent extends Event {
+        float partialTicks;
+    }
+
+    public static class TickEvent extends Event {
+    }
+}
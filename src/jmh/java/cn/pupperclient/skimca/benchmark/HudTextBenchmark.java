@@ -0,0 +1,81 @@
+package cn.pupperclient.skimca.benchmark;
+
+import cn.pupperclient.skimca.Skimca;
+import cn.pupperclient.skimca.context.SkiaContext;
+import cn.pupperclient.skimca.font.FontHelper;
+import io.github.humbleui.skija.Font;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a frame of HUD labels drawn with {@link Skimca#drawText} and truncated with
+ * {@link Skimca#getLimitText}. Most labels repeat every frame, like module names and
+ * keystrokes; a few change, like coordinates and the FPS counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HudTextBenchmark {
+
+    private static final String[] WORDS = {
+            "Sprint", "Keystrokes", "Armor Status", "Potion Effects", "Coordinates", "Direction",
+            "Reach Display", "Combo Counter", "Server Address", "Memory Usage", "Ping", "Clock"
+    };
+
+    /** Labels whose text changes every frame. */
+    private static final int DYNAMIC_LABELS = 8;
+
+    @Param({"100", "400"})
+    public int labels;
+
+    private Font font;
+    private String[] texts;
+    private long frame;
+
+    @Setup
+    public void setup() {
+        RasterSurface.open();
+        font = FontHelper.loadFallback(9);
+
+        texts = new String[labels];
+        for (int i = 0; i < labels; i++) {
+            texts[i] = WORDS[i % WORDS.length] + " " + (i / WORDS.length)
+                    + (i % 3 == 0 ? " - enabled with a long description that needs truncating" : "");
+        }
+    }
+
+    /**
+     * Draws every label in one frame.
+     */
+    @Benchmark
+    public void drawLabels() {
+        long current = frame++;
+
+        SkiaContext.draw(canvas -> {
+            for (int i = 0; i < labels; i++) {
+                String text = i < DYNAMIC_LABELS ? "XYZ " + (current + i) : texts[i];
+                Skimca.drawText(text, column(i), row(i), 0xFFFFFFFF, font);
+            }
+        });
+    }
+
+    /**
+     * Truncates every label to its column width, as a list of module names does each frame.
+     */
+    @Benchmark
+    public void limitLabels(Blackhole blackhole) {
+        for (int i = 0; i < labels; i++) {
+            blackhole.consume(Skimca.getLimitText(texts[i], font, 90));
+        }
+    }
+
+    private static float column(int index) {
+        return 4 + (index / 50) * 100;
+    }
+
+    private static float row(int index) {
+        return 4 + (index % 50) * 10;
+    }
+}
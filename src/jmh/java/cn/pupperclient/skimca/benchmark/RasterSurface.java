@@ -0,0 +1,25 @@
+package cn.pupperclient.skimca.benchmark;
+
+import cn.pupperclient.skimca.context.RasterBackend;
+import cn.pupperclient.skimca.context.SkiaContext;
+
+/**
+ * Points {@link SkiaContext} at an offscreen CPU surface, so drawing benchmarks
+ * run without a window, an OpenGL context or a running game.
+ */
+final class RasterSurface {
+
+    /** A 1080p window at GUI scale 2, the size the HUD is laid out in. */
+    static final int WIDTH = 960;
+    static final int HEIGHT = 540;
+
+    private RasterSurface() {
+    }
+
+    static void open() {
+        if (!(SkiaContext.getBackend() instanceof RasterBackend)) {
+            SkiaContext.setBackend(new RasterBackend());
+        }
+        SkiaContext.createSurface(WIDTH, HEIGHT);
+    }
+}
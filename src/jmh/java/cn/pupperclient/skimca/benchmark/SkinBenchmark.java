@@ -0,0 +1,113 @@
+package cn.pupperclient.skimca.benchmark;
+
+import cn.pupperclient.skimca.Skimca;
+import cn.pupperclient.skimca.context.SkiaContext;
+import cn.pupperclient.skimca.image.ImageHelper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures drawing a tab list of player skins with {@link Skimca#drawSkin},
+ * and the first frame that draws them after {@link ImageHelper#load(File)}, which is
+ * where the lazily loaded skin files are decoded.
+ * Skins are generated 64x64 PNGs written to a temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SkinBenchmark {
+
+    @Param({"24", "80"})
+    public int skins;
+
+    private Path directory;
+    private File[] files;
+
+    /** A separate helper, so decoding is measured without touching the cache the draws use. */
+    private final ImageHelper decoder = new ImageHelper();
+
+    @Setup
+    public void setup() throws IOException {
+        RasterSurface.open();
+
+        directory = Files.createTempDirectory("skimca-skins");
+        files = new File[skins];
+
+        Random random = new Random(42);
+        for (int i = 0; i < skins; i++) {
+            files[i] = directory.resolve("skin-" + i + ".png").toFile();
+            ImageIO.write(generateSkin(random), "png", files[i]);
+
+            // Drawn skins are cached like in game, only the first frame decodes them
+            Skimca.getImageHelper().load(files[i]);
+        }
+    }
+
+    /**
+     * Drops the skins decoded by the previous {@link #loadSkins} call, outside the measurement.
+     */
+    @Setup(Level.Invocation)
+    public void clearDecoded() {
+        decoder.getImageCache().clear();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        decoder.getImageCache().clear();
+
+        for (File file : files) {
+            Files.deleteIfExists(file.toPath());
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Draws every skin in one frame, laid out like the tab list.
+     */
+    @Benchmark
+    public void drawSkins() {
+        SkiaContext.draw(canvas -> {
+            for (int i = 0; i < skins; i++) {
+                Skimca.drawSkin(files[i], 4 + (i % 20) * 40, 4 + (i / 20) * 70, 2);
+            }
+        });
+    }
+
+    /**
+     * Loads every skin file and draws it once. Loading only reads the encoded bytes,
+     * so the decode is paid by the draw, like the first frame in game.
+     */
+    @Benchmark
+    public void loadSkins(Blackhole blackhole) {
+        for (File file : files) {
+            blackhole.consume(decoder.load(file));
+        }
+
+        SkiaContext.draw(canvas -> {
+            for (int i = 0; i < skins; i++) {
+                canvas.drawImage(decoder.get(files[i].getName()), 4 + (i % 20) * 40, 4 + (i / 20) * 70);
+            }
+        });
+    }
+
+    private static BufferedImage generateSkin(Random random) {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                // Opaque base, with a partly transparent overlay layer in the top half
+                int alpha = y < 16 && x >= 32 && random.nextBoolean() ? 0 : 0xFF;
+                image.setRGB(x, y, alpha << 24 | random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+}
@@ -3,9 +3,15 @@ package cn.pupperclient.skimca;
 import java.awt.Color;
 import java.io.File;
 
+import cn.pupperclient.skimca.context.DrawCommandBuffer;
 import cn.pupperclient.skimca.context.SkiaContext;
 import cn.pupperclient.skimca.event.SkimcaEventManager;
+import cn.pupperclient.skimca.font.TextBlobCache;
+import cn.pupperclient.skimca.font.TextTruncator;
 import cn.pupperclient.skimca.image.ImageHelper;
+import cn.pupperclient.skimca.paint.PaintPool;
+import cn.pupperclient.skimca.path.PathCache;
+import cn.pupperclient.skimca.utils.ColorUtils;
 import io.github.humbleui.skija.*;
 import io.github.humbleui.types.*;
 import net.minecraft.util.Identifier;
@@ -14,16 +20,55 @@ public class Skimca {
 
     private static final ImageHelper imageHelper = new ImageHelper();
 
+    private static final TextBlobCache textCache = new TextBlobCache(TextBlobCache.DEFAULT_CAPACITY);
+
+    private static final TextTruncator textTruncator = new TextTruncator(TextTruncator.DEFAULT_CAPACITY);
+
+    private static final PathCache pathCache = new PathCache(PathCache.DEFAULT_CAPACITY);
+
+    /** Color of the blurred shadow drawn by {@link #drawShadow}. */
+    private static final int SHADOW_COLOR = ColorUtils.argb(120, 0, 0, 0);
+
+    /** Color drawn in place of images that are still loading, or 0 to draw nothing. */
+    private static int imagePlaceholderColor = ColorUtils.argb(40, 255, 255, 255);
+
+    /** Shared blur used by {@link #drawShadow}, built once instead of per call. */
+    private static final ImageFilter SHADOW_BLUR = ImageFilter.makeBlur(2.5F, 2.5F, FilterTileMode.DECAL);
+
     public static void drawRect(float x, float y, float width, float height, Color color) {
+        drawRect(x, y, width, height, color.getRGB());
+    }
+
+    public static void drawRect(float x, float y, float width, float height, int color) {
+        DrawCommandBuffer commands = SkiaContext.getDeferredCommands();
+        if (commands != null) {
+            commands.rect(x, y, width, height, color);
+            return;
+        }
+
         getCanvas().drawRect(Rect.makeXYWH(x, y, width, height), getPaint(color));
     }
 
     public static void drawCircle(float x, float y, float radius, Color color) {
+        drawCircle(x, y, radius, color.getRGB());
+    }
+
+    public static void drawCircle(float x, float y, float radius, int color) {
+        DrawCommandBuffer commands = SkiaContext.getDeferredCommands();
+        if (commands != null) {
+            commands.circle(x, y, radius, color);
+            return;
+        }
+
         Paint paint = getPaint(color);
         getCanvas().drawCircle(x, y, radius, paint);
     }
 
     public static void drawCircle(float x, float y, float radius, float strokeWidth, Color color) {
+        drawCircle(x, y, radius, strokeWidth, color.getRGB());
+    }
+
+    public static void drawCircle(float x, float y, float radius, float strokeWidth, int color) {
         Paint paint = getPaint(color);
         paint.setMode(PaintMode.STROKE);
         paint.setStrokeWidth(strokeWidth);
@@ -31,11 +76,26 @@ public class Skimca {
     }
 
     public static void drawRoundedRect(float x, float y, float width, float height, float radius, Color color) {
+        drawRoundedRect(x, y, width, height, radius, color.getRGB());
+    }
+
+    public static void drawRoundedRect(float x, float y, float width, float height, float radius, int color) {
+        DrawCommandBuffer commands = SkiaContext.getDeferredCommands();
+        if (commands != null) {
+            commands.roundedRect(x, y, width, height, radius, color);
+            return;
+        }
+
         getCanvas().drawRRect(RRect.makeXYWH(x, y, width, height, radius), getPaint(color));
     }
 
     public static void drawRoundedRectVarying(float x, float y, float width, float height, float topLeft,
                                               float topRight, float bottomRight, float bottomLeft, Color color) {
+        drawRoundedRectVarying(x, y, width, height, topLeft, topRight, bottomRight, bottomLeft, color.getRGB());
+    }
+
+    public static void drawRoundedRectVarying(float x, float y, float width, float height, float topLeft,
+                                              float topRight, float bottomRight, float bottomLeft, int color) {
 
         float[] corners = new float[] { topLeft, topLeft, topRight, topRight, bottomRight, bottomRight, bottomLeft,
                 bottomLeft };
@@ -45,9 +105,9 @@ public class Skimca {
 
     public static void drawShadow(float x, float y, float width, float height, float radius) {
 
-        Paint paint = getPaint(new Color(0, 0, 0, 120));
+        Paint paint = getPaint(SHADOW_COLOR);
 
-        paint.setImageFilter(ImageFilter.makeBlur(2.5F, 2.5F, FilterTileMode.DECAL));
+        paint.setImageFilter(SHADOW_BLUR);
 
         save();
         clip(x, y, width, height, radius, ClipMode.DIFFERENCE);
@@ -57,25 +117,30 @@ public class Skimca {
 
     public static void drawOutline(float x, float y, float width, float height, float radius, float strokeWidth,
                                    Color color) {
+        drawOutline(x, y, width, height, radius, strokeWidth, color.getRGB());
+    }
 
-        float halfStroke = strokeWidth / 2;
+    public static void drawOutline(float x, float y, float width, float height, float radius, float strokeWidth,
+                                   int color) {
 
-        Path path = Path.makeRRect(RRect.makeXYWH(x + halfStroke, y + halfStroke, width - strokeWidth, height - strokeWidth,
-                radius - halfStroke));
+        float halfStroke = strokeWidth / 2;
 
         Paint paint = getPaint(color);
         paint.setStrokeWidth(strokeWidth);
         paint.setMode(PaintMode.STROKE);
 
-        getCanvas().drawPath(path, paint);
+        getCanvas().drawRRect(RRect.makeXYWH(x + halfStroke, y + halfStroke, width - strokeWidth,
+                height - strokeWidth, Math.max(0, radius - halfStroke)), paint);
     }
 
     public static void drawImage(String path, float x, float y, float width, float height) {
 
         path = "/assets/pupper/" + path;
 
-        if (imageHelper.load(path)) {
+        if (imageHelper.loadAsync(path)) {
             getCanvas().drawImageRect(imageHelper.get(path), Rect.makeXYWH(x, y, width, height));
+        } else {
+            drawImagePlaceholder(x, y, width, height);
         }
     }
 
@@ -83,7 +148,7 @@ public class Skimca {
                                  SurfaceOrigin origin) {
 
         if (imageHelper.load(textureId, width, height, origin)) {
-            Paint paint = new Paint();
+            Paint paint = PaintPool.get().acquire();
             paint.setAlpha((int) (255 * alpha));
             getCanvas().drawImageRect(imageHelper.get(textureId), Rect.makeXYWH(x, y, width, height), paint);
         }
@@ -94,8 +159,10 @@ public class Skimca {
     }
 
     public static void drawImage(File file, float x, float y, float width, float height) {
-        if (imageHelper.load(file)) {
+        if (imageHelper.loadAsync(file)) {
             getCanvas().drawImageRect(imageHelper.get(file.getName()), Rect.makeXYWH(x, y, width, height));
+        } else {
+            drawImagePlaceholder(x, y, width, height);
         }
     }
 
@@ -111,41 +178,30 @@ public class Skimca {
     }
 
     public static void drawRoundedImage(int textureId, float x, float y, float width, float height, float radius) {
-
-        Path path = Path.makeRRect(RRect.makeXYWH(x, y, width, height, radius));
-
         save();
-        getCanvas().clipPath(path, ClipMode.INTERSECT, true);
+        clipRoundedRect(x, y, width, height, radius, ClipMode.INTERSECT);
         drawImage(textureId, x, y, width, height);
         restore();
     }
 
     public static void drawRoundedImage(String filePath, float x, float y, float width, float height, float radius) {
-
-        Path path = Path.makeRRect(RRect.makeXYWH(x, y, width, height, radius));
-
         save();
-        getCanvas().clipPath(path, ClipMode.INTERSECT, true);
+        clipRoundedRect(x, y, width, height, radius, ClipMode.INTERSECT);
         drawImage(filePath, x, y, width, height);
         restore();
     }
 
     public static void drawRoundedImage(File file, float x, float y, float width, float height, float radius) {
-
-        Path path = Path.makeRRect(RRect.makeXYWH(x, y, width, height, radius));
-
         save();
-        getCanvas().clipPath(path, ClipMode.INTERSECT, true);
+        clipRoundedRect(x, y, width, height, radius, ClipMode.INTERSECT);
         drawImage(file, x, y, width, height);
         restore();
     }
 
     public static void drawRoundedImage(int textureId, float x, float y, float width, float height, float radius,
                                         float alpha, SurfaceOrigin origin) {
-        Path path = Path.makeRRect(RRect.makeXYWH(x, y, width, height, radius));
-
         save();
-        getCanvas().clipPath(path, ClipMode.INTERSECT, true);
+        clipRoundedRect(x, y, width, height, radius, ClipMode.INTERSECT);
         drawImage(textureId, x, y, width, height, alpha, origin);
         restore();
     }
@@ -156,24 +212,28 @@ public class Skimca {
     }
 
     public static void drawPlayerHead(File file, float x, float y, float width, float height, float radius) {
-        if (imageHelper.load(file)) {
-
-            Path path = Path.makeRRect(RRect.makeXYWH(x, y, width, height, radius));
+        if (!imageHelper.loadAsync(file)) {
+            if (imagePlaceholderColor != 0) {
+                drawRoundedRect(x, y, width, height, radius, imagePlaceholderColor);
+            }
+        } else {
+            Image image = imageHelper.get(file.getName());
 
             Rect srcRect = Rect.makeXYWH(8, 8, 8, 8);
             Rect srcRect1 = Rect.makeXYWH(40, 8, 8, 8);
             Rect dstRect = Rect.makeXYWH(x, y, width, height);
 
             save();
-            getCanvas().clipPath(path, ClipMode.INTERSECT, true);
-            getCanvas().drawImageRect(imageHelper.get(file.getName()), srcRect, dstRect, null, false);
-            getCanvas().drawImageRect(imageHelper.get(file.getName()), srcRect1, dstRect, null, false);
+            clipRoundedRect(x, y, width, height, radius, ClipMode.INTERSECT);
+            getCanvas().drawImageRect(image, srcRect, dstRect, null, false);
+            getCanvas().drawImageRect(image, srcRect1, dstRect, null, false);
             restore();
         }
     }
 
     public static void drawSkin(File file, float x, float y, float scale) {
-        if (imageHelper.load(file)) {
+        if (imageHelper.loadAsync(file)) {
+            Image image = imageHelper.get(file.getName());
 
             Rect head = Rect.makeXYWH(8, 8, 8, 8);
             Rect headLayer = Rect.makeXYWH(40, 8, 8, 8);
@@ -190,42 +250,39 @@ public class Skimca {
 
             save();
             scale(x, y, scale);
-            getCanvas().drawImageRect(imageHelper.get(file.getName()), head,
+            getCanvas().drawImageRect(image, head,
                     Rect.makeXYWH(x + leftArm.getWidth(), y, head.getWidth(), head.getHeight()), null, false);
-            getCanvas().drawImageRect(imageHelper.get(file.getName()), headLayer,
+            getCanvas().drawImageRect(image, headLayer,
                     Rect.makeXYWH(x + leftArm.getWidth(), y, headLayer.getWidth(), headLayer.getHeight()), null, false);
-            getCanvas().drawImageRect(imageHelper.get(file.getName()), body,
+            getCanvas().drawImageRect(image, body,
                     Rect.makeXYWH(x + leftArm.getWidth(), y + head.getHeight(), body.getWidth(), body.getHeight()),
                     null, false);
-            getCanvas().drawImageRect(imageHelper.get(file.getName()), bodyLayer, Rect.makeXYWH(x + leftArm.getWidth(),
+            getCanvas().drawImageRect(image, bodyLayer, Rect.makeXYWH(x + leftArm.getWidth(),
                     y + headLayer.getHeight(), bodyLayer.getWidth(), bodyLayer.getHeight()), null, false);
-            getCanvas().drawImageRect(imageHelper.get(file.getName()), leftArm,
+            getCanvas().drawImageRect(image, leftArm,
                     Rect.makeXYWH(x, y + head.getHeight(), leftArm.getWidth(), leftArm.getHeight()), null, false);
-            getCanvas().drawImageRect(imageHelper.get(file.getName()), leftArmLayer,
+            getCanvas().drawImageRect(image, leftArmLayer,
                     Rect.makeXYWH(x, y + headLayer.getHeight(), leftArmLayer.getWidth(), leftArmLayer.getHeight()),
                     null, false);
-            getCanvas().drawImageRect(imageHelper.get(file.getName()), rightArm,
+            getCanvas().drawImageRect(image, rightArm,
                     Rect.makeXYWH(x + leftArm.getWidth() + body.getWidth(), y + head.getHeight(), rightArm.getWidth(),
                             rightArm.getHeight()),
                     null, false);
-            getCanvas().drawImageRect(imageHelper.get(file.getName()), rightArmLayer,
+            getCanvas().drawImageRect(image, rightArmLayer,
                     Rect.makeXYWH(x + leftArmLayer.getWidth() + bodyLayer.getWidth(), y + headLayer.getHeight(),
                             rightArmLayer.getWidth(), rightArmLayer.getHeight()),
                     null, false);
-            getCanvas().drawImageRect(
-                    imageHelper.get(file.getName()), leftLeg, Rect.makeXYWH(x + leftArm.getWidth(),
-                            y + head.getHeight() + body.getHeight(), leftLeg.getWidth(), leftLeg.getHeight()),
-                    null, false);
-            getCanvas().drawImageRect(imageHelper.get(file.getName()), leftLegLayer,
+            getCanvas().drawImageRect(image, leftLeg, Rect.makeXYWH(x + leftArm.getWidth(),
+                    y + head.getHeight() + body.getHeight(), leftLeg.getWidth(), leftLeg.getHeight()), null, false);
+            getCanvas().drawImageRect(image, leftLegLayer,
                     Rect.makeXYWH(x + leftArmLayer.getWidth(), y + headLayer.getHeight() + bodyLayer.getHeight(),
                             leftLegLayer.getWidth(), leftLegLayer.getHeight()),
                     null, false);
-            getCanvas()
-                    .drawImageRect(imageHelper.get(file.getName()), rightLeg,
-                            Rect.makeXYWH(x + leftArm.getWidth() + leftLeg.getWidth(),
-                                    y + head.getHeight() + body.getHeight(), rightLeg.getWidth(), rightLeg.getHeight()),
-                            null, false);
-            getCanvas().drawImageRect(imageHelper.get(file.getName()), rightLegLayer,
+            getCanvas().drawImageRect(image, rightLeg,
+                    Rect.makeXYWH(x + leftArm.getWidth() + leftLeg.getWidth(),
+                            y + head.getHeight() + body.getHeight(), rightLeg.getWidth(), rightLeg.getHeight()),
+                    null, false);
+            getCanvas().drawImageRect(image, rightLegLayer,
                     Rect.makeXYWH(x + leftArmLayer.getWidth() + leftLegLayer.getWidth(),
                             y + headLayer.getHeight() + bodyLayer.getHeight(), rightLegLayer.getWidth(),
                             rightLegLayer.getHeight()),
@@ -237,13 +294,35 @@ public class Skimca {
     public static void drawMinecraftImage(String path, float x, float y, float width, float height) {
         Identifier identifier = Identifier.of("minecraft", path);
 
-        if (imageHelper.load(identifier)) {
+        if (imageHelper.loadAsync(identifier)) {
             getCanvas().drawImageRect(imageHelper.get(identifier.getPath()), Rect.makeXYWH(x, y, width, height));
+        } else {
+            drawImagePlaceholder(x, y, width, height);
+        }
+    }
+
+    /**
+     * Sets the color drawn in place of images that are still loading in the background.
+     *
+     * @param color the placeholder color as {@code 0xAARRGGBB}, or {@code 0} to draw nothing
+     */
+    public static void setImagePlaceholderColor(int color) {
+        imagePlaceholderColor = color;
+    }
+
+    private static void drawImagePlaceholder(float x, float y, float width, float height) {
+        if (imagePlaceholderColor != 0) {
+            drawRect(x, y, width, height, imagePlaceholderColor);
         }
     }
 
     public static void drawArc(float x, float y, float radius, float startAngle, float endAngle, float strokeWidth,
                                Color color) {
+        drawArc(x, y, radius, startAngle, endAngle, strokeWidth, color.getRGB());
+    }
+
+    public static void drawArc(float x, float y, float radius, float startAngle, float endAngle, float strokeWidth,
+                               int color) {
 
         Paint paint = getPaint(color);
         paint.setStrokeWidth(strokeWidth);
@@ -253,6 +332,16 @@ public class Skimca {
     }
 
     public static void drawLine(float x, float y, float endX, float endY, float width, Color color) {
+        drawLine(x, y, endX, endY, width, color.getRGB());
+    }
+
+    public static void drawLine(float x, float y, float endX, float endY, float width, int color) {
+
+        DrawCommandBuffer commands = SkiaContext.getDeferredCommands();
+        if (commands != null) {
+            commands.line(x, y, endX, endY, width, color);
+            return;
+        }
 
         Paint paint = getPaint(color);
 
@@ -265,34 +354,34 @@ public class Skimca {
 
     public static void drawGradientRoundedRect(float x, float y, float width, float height, float radius, Color color1,
                                                Color color2) {
+        drawGradientRoundedRect(x, y, width, height, radius, color1.getRGB(), color2.getRGB());
+    }
+
+    public static void drawGradientRoundedRect(float x, float y, float width, float height, float radius, int color1,
+                                               int color2) {
 
         long currentTime = System.nanoTime();
         double speed = 0.0000000006;
         double tick = (currentTime * speed) % (2 * Math.PI);
         float max = Math.max(width, height);
 
-        Path path = Path.makeRRect(RRect.makeXYWH(x, y, width, height, radius));
-
         float startX = x + width / 2 - (max / 2) * (float) Math.cos(tick);
         float startY = y + height / 2 - (max / 2) * (float) Math.sin(tick);
         float endX = x + width / 2 + (max / 2) * (float) Math.cos(tick);
         float endY = y + height / 2 + (max / 2) * (float) Math.sin(tick);
 
-        int skColor1 = io.github.humbleui.skija.Color.makeARGB(color1.getAlpha(), color1.getRed(), color1.getGreen(),
-                color1.getBlue());
-        int skColor2 = io.github.humbleui.skija.Color.makeARGB(color2.getAlpha(), color2.getRed(), color2.getGreen(),
-                color2.getBlue());
+        int colorMid = ColorUtils.withAlpha(ColorUtils.mix(color1, color2, 0.5F), ColorUtils.alpha(color1));
 
-        int skColorMid = io.github.humbleui.skija.Color.makeARGB(color1.getAlpha(),
-                (color1.getRed() + color2.getRed()) / 2, (color1.getGreen() + color2.getGreen()) / 2,
-                (color1.getBlue() + color2.getBlue()) / 2);
+        Paint paint = PaintPool.get().acquire();
 
-        Paint paint = new Paint();
+        Shader shader = Shader.makeLinearGradient(new Point(startX, startY), new Point(endX, endY),
+                new int[] { color1, colorMid, color2 }, new float[] { 0, 0.5f, 1 });
+        paint.setShader(shader);
 
-        paint.setShader(Shader.makeLinearGradient(new Point(startX, startY), new Point(endX, endY),
-                new int[] { skColor1, skColorMid, skColor2 }, new float[] { 0, 0.5f, 1 }));
+        getCanvas().drawRRect(RRect.makeXYWH(x, y, width, height, radius), paint);
 
-        getCanvas().drawPath(path, paint);
+        // The paint keeps its own reference until the pool resets it
+        shader.close();
     }
 
     public static void clipPath(Path path, ClipMode mode, boolean arg) {
@@ -303,10 +392,78 @@ public class Skimca {
         getCanvas().clipPath(path, ClipMode.INTERSECT, true);
     }
 
-    public static void clip(float x, float y, float width, float height, float radius, ClipMode mode) {
+    /**
+     * Clips to the path described by an SVG path string, translated to the given position.
+     * The path is parsed once and then served from the path cache.
+     *
+     * @param svg the path data, as in the {@code d} attribute of an SVG {@code <path>}
+     * @param x   the x offset of the path
+     * @param y   the y offset of the path
+     */
+    public static void clipPath(String svg, float x, float y) {
+        Path path = pathCache.get(svg);
+
+        if (path != null) {
+            Canvas canvas = getCanvas();
+            canvas.translate(x, y);
+            canvas.clipPath(path, ClipMode.INTERSECT, true);
+            canvas.translate(-x, -y);
+        }
+    }
+
+    /**
+     * Fills the path described by an SVG path string, translated to the given position.
+     * The path is parsed once and then served from the path cache.
+     *
+     * @param svg   the path data, as in the {@code d} attribute of an SVG {@code <path>}
+     * @param x     the x offset of the path
+     * @param y     the y offset of the path
+     * @param color the fill color as {@code 0xAARRGGBB}
+     */
+    public static void drawPath(String svg, float x, float y, int color) {
+        Path path = pathCache.get(svg);
+
+        if (path != null) {
+            Canvas canvas = getCanvas();
+            canvas.translate(x, y);
+            canvas.drawPath(path, getPaint(color));
+            canvas.translate(-x, -y);
+        }
+    }
 
-        Path path = Path.makeRRect(RRect.makeXYWH(x, y, width, height, radius));
-        clipPath(path, mode, true);
+    /**
+     * Clips to an axis-aligned rect. Skia handles rect clips analytically, without a path.
+     *
+     * @param x      the x coordinate of the rect
+     * @param y      the y coordinate of the rect
+     * @param width  the width of the rect
+     * @param height the height of the rect
+     */
+    public static void clipRect(float x, float y, float width, float height) {
+        getCanvas().clipRect(Rect.makeXYWH(x, y, width, height), ClipMode.INTERSECT, true);
+    }
+
+    /**
+     * Clips to a rounded rect. Skia handles rounded rect clips analytically, without a path;
+     * a radius of zero or less clips to a plain rect.
+     *
+     * @param x      the x coordinate of the rect
+     * @param y      the y coordinate of the rect
+     * @param width  the width of the rect
+     * @param height the height of the rect
+     * @param radius the corner radius
+     * @param mode   whether to keep the inside or the outside of the rect
+     */
+    public static void clipRoundedRect(float x, float y, float width, float height, float radius, ClipMode mode) {
+        if (radius <= 0) {
+            getCanvas().clipRect(Rect.makeXYWH(x, y, width, height), mode, true);
+        } else {
+            getCanvas().clipRRect(RRect.makeXYWH(x, y, width, height, radius), mode, true);
+        }
+    }
+
+    public static void clip(float x, float y, float width, float height, float radius, ClipMode mode) {
+        clipRoundedRect(x, y, width, height, radius, mode);
     }
 
     public static void clip(float x, float y, float width, float height, float topLeft, float topRight,
@@ -315,8 +472,7 @@ public class Skimca {
         float[] corners = new float[] { topLeft, topLeft, topRight, topRight, bottomRight, bottomRight, bottomLeft,
                 bottomLeft };
 
-        Path path = Path.makeRRect(RRect.makeComplexXYWH(x, y, width, height, corners));
-        clipPath(path, ClipMode.INTERSECT, true);
+        getCanvas().clipRRect(RRect.makeComplexXYWH(x, y, width, height, corners), ClipMode.INTERSECT, true);
     }
 
     public static void clip(float x, float y, float width, float height, float radius) {
@@ -324,71 +480,135 @@ public class Skimca {
     }
 
     public static void drawText(String text, float x, float y, Color color, Font font) {
-        Rect bounds = font.measureText(text);
-        getCanvas().drawString(text, x - bounds.getLeft(), y - bounds.getTop(), font, getPaint(color));
+        drawText(text, x, y, color.getRGB(), font);
+    }
+
+    public static void drawText(String text, float x, float y, int color, Font font) {
+        TextBlobCache.Entry shaped = textCache.get(text, font);
+        Rect bounds = shaped.bounds();
+        drawTextBlob(shaped, x - bounds.getLeft(), y - bounds.getTop(), color);
     }
 
     public static void drawCenteredText(String text, float x, float y, Color color, Font font) {
-        Rect bounds = font.measureText(text);
-        getCanvas().drawString(text, x - bounds.getLeft() - (bounds.getWidth() / 2), y - bounds.getTop(), font,
-                getPaint(color));
+        drawCenteredText(text, x, y, color.getRGB(), font);
+    }
+
+    public static void drawCenteredText(String text, float x, float y, int color, Font font) {
+        TextBlobCache.Entry shaped = textCache.get(text, font);
+        Rect bounds = shaped.bounds();
+        drawTextBlob(shaped, x - bounds.getLeft() - (bounds.getWidth() / 2), y - bounds.getTop(), color);
     }
 
     public static void drawHeightCenteredText(String text, float x, float y, Color color, Font font) {
+        drawHeightCenteredText(text, x, y, color.getRGB(), font);
+    }
 
-        FontMetrics metrics = font.getMetrics();
-        Rect bounds = font.measureText(text);
+    public static void drawHeightCenteredText(String text, float x, float y, int color, Font font) {
+
+        FontMetrics metrics = textCache.getMetrics(font);
+        TextBlobCache.Entry shaped = textCache.get(text, font);
+        Rect bounds = shaped.bounds();
 
         float textCenterY = y + (metrics.getAscent() - metrics.getDescent()) / 2 - metrics.getAscent();
 
-        getCanvas().drawString(text, x - bounds.getLeft(), textCenterY, font, getPaint(color));
+        drawTextBlob(shaped, x - bounds.getLeft(), textCenterY, color);
     }
 
     public static void drawFullCenteredText(String text, float x, float y, Color color, Font font) {
+        drawFullCenteredText(text, x, y, color.getRGB(), font);
+    }
+
+    public static void drawFullCenteredText(String text, float x, float y, int color, Font font) {
 
-        Rect bounds = font.measureText(text);
+        TextBlobCache.Entry shaped = textCache.get(text, font);
+        Rect bounds = shaped.bounds();
 
-        FontMetrics metrics = font.getMetrics();
+        FontMetrics metrics = textCache.getMetrics(font);
 
         float textCenterX = x - bounds.getLeft() - (bounds.getWidth() / 2);
         float textCenterY = y + (metrics.getAscent() - metrics.getDescent()) / 2 - metrics.getAscent();
 
-        getCanvas().drawString(text, textCenterX, textCenterY, font, getPaint(color));
+        drawTextBlob(shaped, textCenterX, textCenterY, color);
     }
 
+    /**
+     * Returns the bounds of the given text, served from the shaped text cache.
+     *
+     * @param text the text to measure
+     * @param font the font to measure with
+     * @return the text bounds
+     */
     public static Rect getTextBounds(String text, Font font) {
-        return font.measureText(text);
+        return textCache.get(text, font).bounds();
     }
 
+    /**
+     * Truncates text so that it fits in the given width, appending {@code "..."} when
+     * characters had to be removed. Results are memoized per text, font and width.
+     *
+     * @param text  the text to truncate
+     * @param font  the font the text is drawn with
+     * @param width the available width
+     * @return the text, truncated if necessary
+     */
     public static String getLimitText(String text, Font font, float width) {
+        return textTruncator.truncate(text, font, width);
+    }
 
-        boolean isInRange = false;
-        boolean isRemoved = false;
-
-        while (!isInRange) {
+    private static void drawTextBlob(TextBlobCache.Entry shaped, float x, float y, int color) {
+        if (shaped.blob() == null) {
+            return;
+        }
 
-            if (getTextBounds(text, font).getWidth() > width - getTextBounds("...", font).getWidth()) {
-                text = text.substring(0, text.length() - 1);
-                isRemoved = true;
-            } else {
-                isInRange = true;
-            }
+        DrawCommandBuffer commands = SkiaContext.getDeferredCommands();
+        if (commands != null) {
+            commands.text(shaped.blob(), shaped.bounds(), x, y, color);
+            return;
         }
 
-        return text + (isRemoved ? "..." : "");
+        getCanvas().drawTextBlob(shaped.blob(), x, y, getPaint(color));
     }
 
+    /**
+     * Returns a pooled paint filled with the given color. <br/>
+     * The paint belongs to the current frame and must not be kept or closed by the caller.
+     *
+     * @param color the paint color
+     * @return a paint valid until the end of the current frame
+     */
     public static Paint getPaint(Color color) {
-        Paint paint = new Paint();
-        paint.setARGB(color.getAlpha(), color.getRed(), color.getGreen(), color.getBlue());
+        return getPaint(color.getRGB());
+    }
+
+    /**
+     * Returns a pooled paint filled with the given packed color. <br/>
+     * The paint belongs to the current frame and must not be kept or closed by the caller.
+     *
+     * @param color the paint color as {@code 0xAARRGGBB}
+     * @return a paint valid until the end of the current frame
+     */
+    public static Paint getPaint(int color) {
+        Paint paint = PaintPool.get().acquire();
+        paint.setColor(color);
         return paint;
     }
 
     public static void save() {
+        DrawCommandBuffer commands = SkiaContext.getDeferredCommands();
+        if (commands != null) {
+            commands.save();
+            return;
+        }
+
         getCanvas().save();
     }
 
     public static void restore() {
+        DrawCommandBuffer commands = SkiaContext.getDeferredCommands();
+        if (commands != null && commands.restore()) {
+            return;
+        }
+
         getCanvas().restore();
     }
 
@@ -413,6 +633,12 @@ public class Skimca {
     }
 
     public static void translate(float x, float y) {
+        DrawCommandBuffer commands = SkiaContext.getDeferredCommands();
+        if (commands != null) {
+            commands.translate(x, y);
+            return;
+        }
+
         getCanvas().translate(x, y);
     }
 
@@ -428,20 +654,27 @@ public class Skimca {
 
     public static void setAlpha(int alpha) {
 
-        Paint paint = new Paint();
+        Paint paint = PaintPool.get().acquire();
         paint.setAlpha(alpha);
 
         getCanvas().saveLayer(null, paint);
+
+        DrawCommandBuffer commands = SkiaContext.getDeferredCommands();
+        if (commands != null) {
+            // Pair the layer with the next restore()
+            commands.canvasSaved();
+        }
     }
 
     /**
-     * Automatically discovers and registers all classes in the current
-     * classpath that contain {@code @EventTarget} annotated methods.
+     * Automatically discovers and registers the classes in the calling class's package
+     * (and its subpackages) that contain {@code @EventTarget} annotated methods.
+     * Other mods on the same class loader are left alone.
      * This method should be called during mod initialization.
      */
     public static void autoRegisterEventHandlers() {
-        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-        SkimcaEventManager.getInstance().autoRegisterFromClassLoader(classLoader);
+        Class<?> caller = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE).getCallerClass();
+        SkimcaEventManager.getInstance().autoRegisterFromClassLoader(caller.getClassLoader(), caller.getPackageName());
     }
 
     /**
@@ -470,4 +703,12 @@ public class Skimca {
     public static ImageHelper getImageHelper() {
         return imageHelper;
     }
+
+    public static TextBlobCache getTextCache() {
+        return textCache;
+    }
+
+    public static PathCache getPathCache() {
+        return pathCache;
+    }
 }
@@ -2,6 +2,7 @@ package cn.pupperclient.skimca;
 
 import cn.pupperclient.skimca.event.SkimcaEventManager;
 import cn.pupperclient.skimca.example.ExampleSkimca;
+import cn.pupperclient.skimca.font.FontHelper;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.loader.api.FabricLoader;
@@ -17,10 +18,18 @@ public class SkimcaClient implements ModInitializer, ClientModInitializer {
 
     private void autoRegisterEventHandlers() {
         try {
-            eventManager.register(ExampleSkimca.class);
-
+            // Entrypoints first: the instance a mod declared there is the one it holds,
+            // and a class registered once is skipped afterwards
             registerFromEntrypoints();
 
+            // Handlers of this mod indexed at compile time by the skimca annotation processor.
+            // The class loader is shared by all mods, so other mods' indexes are left alone.
+            if (eventManager.registerIndexed(SkimcaClient.class.getClassLoader(),
+                    SkimcaClient.class.getPackageName()) == 0) {
+                SkimcaLogger.warn("SkimcaClient", "No event handler index found, was the annotation processor run?");
+                eventManager.register(ExampleSkimca.class);
+            }
+
             SkimcaLogger.info("SkimcaClient",
                     "Auto-registered " + eventManager.getRegisteredClassCount() + " event handler classes");
         } catch (Exception e) {
@@ -68,6 +77,7 @@ public class SkimcaClient implements ModInitializer, ClientModInitializer {
      */
     @Override
     public void onInitializeClient() {
-
+        // Parse large fonts in the background so the first frame doesn't hitch
+        FontHelper.preloadFontsAsync(ExampleSkimca.FONT_PATH, ExampleSkimca.FONT);
     }
 }
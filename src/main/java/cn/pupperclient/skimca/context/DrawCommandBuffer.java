@@ -0,0 +1,516 @@
+package cn.pupperclient.skimca.context;
+
+import cn.pupperclient.skimca.Skimca;
+import cn.pupperclient.skimca.paint.PaintPool;
+import io.github.humbleui.skija.Canvas;
+import io.github.humbleui.skija.Paint;
+import io.github.humbleui.skija.RRect;
+import io.github.humbleui.skija.TextBlob;
+import io.github.humbleui.types.Rect;
+
+import java.util.Arrays;
+
+/**
+ * Collects solid-color primitives and text drawn through {@code Skimca} while deferred drawing
+ * is enabled, and draws them in one pass when the canvas is needed for anything else. <br/>
+ * Commands are stored in flat primitive arrays (an opcode, six floats and a color each), so
+ * recording allocates nothing once the arrays have grown to the frame's size. When replaying:
+ * <ul>
+ *     <li>consecutive commands with the same paint share one paint instead of setting up their own;</li>
+ *     <li>a command may move back next to an earlier one with the same paint, as long as it does not
+ *     overlap any command it moves past, so interleaved widgets still form runs;</li>
+ *     <li>runs of lines are drawn with a single {@code drawLines}, and rects sharing a full edge
+ *     are merged into one.</li>
+ * </ul>
+ * {@link #save()}, {@link #translate} and {@link #restore()} are tracked here instead of on the canvas:
+ * translations are folded into the coordinates of the commands, and the canvas only receives the
+ * pending saves and translation when it is handed out. So widgets that wrap their drawing in
+ * {@code save}/{@code translate}/{@code restore} still form runs, and every command in the buffer
+ * is drawn under the same matrix and clip, since {@link SkiaContext#getCanvas()} replays pending
+ * commands before handing out the canvas. Clips, scales and rotations go through the canvas and
+ * end the current runs. <br/>
+ * Only drawing to the frame's surface is deferred; retained layers and pictures being recorded
+ * are drawn to directly. Must only be used on the thread drawing the frame.
+ */
+public final class DrawCommandBuffer {
+
+	private static final byte RECT = 0;
+	private static final byte RRECT = 1;
+	private static final byte CIRCLE = 2;
+	private static final byte LINE = 3;
+	private static final byte TEXT = 4;
+
+	/**
+	 * Floats stored per command: the bounding box, then the line width for lines
+	 * or the origin for text.
+	 */
+	private static final int STRIDE = 6;
+
+	/** How many already placed commands a command may move back past to join a run. */
+	private static final int REORDER_WINDOW = 32;
+
+	/** Extra bounds around each command, covering its anti-aliased edge. */
+	private static final float AA_MARGIN = 1;
+
+	private byte[] ops = new byte[256];
+	private float[] data = new float[256 * STRIDE];
+	private int[] colors = new int[256];
+	private TextBlob[] blobs = new TextBlob[256];
+	private int count;
+
+	/** Whether pending text keeps blobs evicted from the text cache open. */
+	private boolean holdsText;
+
+	/** Translation set through {@link #translate}, relative to the canvas at the start of the frame. */
+	private float translateX;
+	private float translateY;
+
+	/** The part of the translation already applied to the canvas. */
+	private float appliedX;
+	private float appliedY;
+
+	/** Translation at each open {@link #save()}, innermost last. */
+	private float[] saves = new float[32];
+	private int saveCount;
+
+	/** How many of the open saves were already applied to the canvas; always the outermost ones. */
+	private int appliedSaves;
+
+	private int[] order = new int[256];
+
+	/**
+	 * Coordinate arrays for {@code drawLines}, one per power-of-two size. Skija draws a whole
+	 * array, so the unused tail is zeroed, and zero-length segments with butt caps draw nothing.
+	 */
+	private final float[][] lineCoords = new float[32][];
+
+	private long commandsRecorded;
+	private long drawCallsIssued;
+	private long commandsReordered;
+	private long replays;
+
+	DrawCommandBuffer() {
+	}
+
+	/**
+	 * Adds a filled rect.
+	 */
+	public void rect(float x, float y, float width, float height, int color) {
+		x += translateX - appliedX;
+		y += translateY - appliedY;
+		add(RECT, x, y, x + width, y + height, 0, 0, color);
+	}
+
+	/**
+	 * Adds a filled rect with uniformly rounded corners.
+	 */
+	public void roundedRect(float x, float y, float width, float height, float radius, int color) {
+		x += translateX - appliedX;
+		y += translateY - appliedY;
+		add(RRECT, x, y, x + width, y + height, radius, 0, color);
+	}
+
+	/**
+	 * Adds a filled circle.
+	 */
+	public void circle(float x, float y, float radius, int color) {
+		x += translateX - appliedX;
+		y += translateY - appliedY;
+		add(CIRCLE, x - radius, y - radius, x + radius, y + radius, 0, 0, color);
+	}
+
+	/**
+	 * Adds an anti-aliased line.
+	 */
+	public void line(float x, float y, float endX, float endY, float width, int color) {
+		float dx = translateX - appliedX;
+		float dy = translateY - appliedY;
+		add(LINE, x + dx, y + dy, endX + dx, endY + dy, width, 0, color);
+	}
+
+	/**
+	 * Adds a text blob filled with the given color. Blobs from {@code Skimca}'s text cache are kept
+	 * open until they are drawn; any other blob must not be closed before the next replay.
+	 *
+	 * @param blob   the shaped text
+	 * @param bounds the bounds of the text, relative to its origin
+	 * @param x      the x coordinate of the origin
+	 * @param y      the y coordinate of the origin
+	 * @param color  the text color
+	 */
+	public void text(TextBlob blob, Rect bounds, float x, float y, int color) {
+		if (!holdsText) {
+			Skimca.getTextCache().beginDeferredClose();
+			holdsText = true;
+		}
+
+		x += translateX - appliedX;
+		y += translateY - appliedY;
+		add(TEXT, x + bounds.getLeft(), y + bounds.getTop(), x + bounds.getRight(), y + bounds.getBottom(), x, y,
+				color);
+		blobs[count - 1] = blob;
+	}
+
+	/**
+	 * Saves the translation, like {@link Canvas#save()}. The canvas is only saved if it is
+	 * handed out before the matching {@link #restore()}.
+	 */
+	public void save() {
+		if (saveCount * 2 == saves.length) {
+			saves = Arrays.copyOf(saves, saves.length * 2);
+		}
+
+		saves[saveCount * 2] = translateX;
+		saves[saveCount * 2 + 1] = translateY;
+		saveCount++;
+	}
+
+	/**
+	 * Records a save made on the canvas right after {@link SkiaContext#getCanvas()} handed it out,
+	 * e.g. a {@code saveLayer}, so the matching {@link #restore()} restores the canvas.
+	 */
+	public void canvasSaved() {
+		save();
+		appliedSaves = saveCount;
+	}
+
+	/**
+	 * Moves everything drawn afterwards, like {@link Canvas#translate}.
+	 */
+	public void translate(float dx, float dy) {
+		translateX += dx;
+		translateY += dy;
+	}
+
+	/**
+	 * Restores the translation of the matching {@link #save()}.
+	 *
+	 * @return {@code false} if the canvas must be restored as well: the save was applied to it,
+	 *         or was made on the canvas directly
+	 */
+	public boolean restore() {
+		if (saveCount == 0) {
+			return false;
+		}
+
+		saveCount--;
+		translateX = saves[saveCount * 2];
+		translateY = saves[saveCount * 2 + 1];
+
+		if (saveCount < appliedSaves) {
+			// The canvas was saved at exactly this translation, so restoring it puts both back in sync
+			appliedSaves = saveCount;
+			appliedX = translateX;
+			appliedY = translateY;
+			return false;
+		}
+		return true;
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * Returns how many commands are waiting to be drawn.
+	 *
+	 * @return the number of pending commands
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Draws every pending command to the given canvas and empties the buffer.
+	 *
+	 * @param canvas the canvas the commands were meant for
+	 */
+	void replay(Canvas canvas) {
+		if (count > 0) {
+			drawCommands(canvas);
+		}
+		applyTransform(canvas);
+	}
+
+	private void drawCommands(Canvas canvas) {
+		sort();
+
+		int i = 0;
+		while (i < count) {
+			int first = order[i];
+			int end = i + 1;
+			while (end < count && sameState(first, order[end])) {
+				end++;
+			}
+
+			Paint paint = PaintPool.get().acquire();
+			paint.setColor(colors[first]);
+
+			switch (ops[first]) {
+				case RECT -> drawRects(canvas, paint, i, end);
+				case RRECT -> {
+					for (int k = i; k < end; k++) {
+						int at = order[k] * STRIDE;
+						canvas.drawRRect(RRect.makeXYWH(data[at], data[at + 1], data[at + 2] - data[at],
+								data[at + 3] - data[at + 1], data[at + 4]), paint);
+					}
+					drawCallsIssued += end - i;
+				}
+				case CIRCLE -> {
+					for (int k = i; k < end; k++) {
+						int at = order[k] * STRIDE;
+						float radius = (data[at + 2] - data[at]) / 2;
+						canvas.drawCircle(data[at] + radius, data[at + 1] + radius, radius, paint);
+					}
+					drawCallsIssued += end - i;
+				}
+				case TEXT -> {
+					for (int k = i; k < end; k++) {
+						int command = order[k];
+						int at = command * STRIDE;
+						canvas.drawTextBlob(blobs[command], data[at + 4], data[at + 5], paint);
+					}
+					drawCallsIssued += end - i;
+				}
+				default -> drawLines(canvas, paint, i, end);
+			}
+
+			i = end;
+		}
+
+		clear();
+		replays++;
+	}
+
+	/**
+	 * Applies the pending saves and translation to the canvas, so it matches what was set through
+	 * {@link #save()} and {@link #translate}.
+	 */
+	private void applyTransform(Canvas canvas) {
+		for (; appliedSaves < saveCount; appliedSaves++) {
+			translateCanvas(canvas, saves[appliedSaves * 2], saves[appliedSaves * 2 + 1]);
+			canvas.save();
+		}
+		translateCanvas(canvas, translateX, translateY);
+	}
+
+	private void translateCanvas(Canvas canvas, float x, float y) {
+		if (x != appliedX || y != appliedY) {
+			canvas.translate(x - appliedX, y - appliedY);
+			appliedX = x;
+			appliedY = y;
+		}
+	}
+
+	/**
+	 * Drops every pending command without drawing it, and forgets the saves and translation.
+	 * Called when a frame ends.
+	 */
+	void discard() {
+		commandsRecorded -= count;
+		clear();
+
+		translateX = 0;
+		translateY = 0;
+		appliedX = 0;
+		appliedY = 0;
+		saveCount = 0;
+		appliedSaves = 0;
+	}
+
+	private void clear() {
+		Arrays.fill(blobs, 0, count, null);
+		count = 0;
+
+		if (holdsText) {
+			holdsText = false;
+			Skimca.getTextCache().endDeferredClose();
+		}
+	}
+
+	/**
+	 * Returns how many commands were recorded since the last {@link #resetStats()}.
+	 *
+	 * @return the number of commands
+	 */
+	public long getCommandsRecorded() {
+		return commandsRecorded;
+	}
+
+	/**
+	 * Returns how many native draw calls replaying the recorded commands took.
+	 *
+	 * @return the number of draw calls
+	 */
+	public long getDrawCallsIssued() {
+		return drawCallsIssued;
+	}
+
+	/**
+	 * Returns how many commands were saved by merging them into another draw call.
+	 *
+	 * @return recorded commands minus issued draw calls
+	 */
+	public long getCommandsBatched() {
+		return commandsRecorded - count - drawCallsIssued;
+	}
+
+	/**
+	 * Returns how many commands were moved back to join a run with the same paint.
+	 *
+	 * @return the number of reordered commands
+	 */
+	public long getCommandsReordered() {
+		return commandsReordered;
+	}
+
+	/**
+	 * Returns how many times pending commands were drawn, which is how often deferred
+	 * drawing was interrupted by a direct canvas access, plus once per frame.
+	 *
+	 * @return the number of replays
+	 */
+	public long getReplays() {
+		return replays;
+	}
+
+	/**
+	 * Clears the statistics.
+	 */
+	public void resetStats() {
+		commandsRecorded = count;
+		drawCallsIssued = 0;
+		commandsReordered = 0;
+		replays = 0;
+	}
+
+	private void add(byte op, float a, float b, float c, float d, float e, float f, int color) {
+		if (count == ops.length) {
+			int capacity = count * 2;
+			ops = Arrays.copyOf(ops, capacity);
+			data = Arrays.copyOf(data, capacity * STRIDE);
+			colors = Arrays.copyOf(colors, capacity);
+			blobs = Arrays.copyOf(blobs, capacity);
+			order = new int[capacity];
+		}
+
+		int at = count * STRIDE;
+		data[at] = a;
+		data[at + 1] = b;
+		data[at + 2] = c;
+		data[at + 3] = d;
+		data[at + 4] = e;
+		data[at + 5] = f;
+		ops[count] = op;
+		colors[count] = color;
+		count++;
+		commandsRecorded++;
+	}
+
+	/**
+	 * Fills {@link #order} with the draw order. A command is placed right after the latest
+	 * command with the same state if it does not overlap anything in between, otherwise last.
+	 * Moving past non-overlapping commands cannot change the result, so the sort is safe.
+	 */
+	private void sort() {
+		for (int command = 0; command < count; command++) {
+			int insert = command;
+
+			for (int k = command - 1; k >= Math.max(0, command - REORDER_WINDOW); k--) {
+				int other = order[k];
+				if (sameState(other, command)) {
+					insert = k + 1;
+					break;
+				}
+				if (overlaps(other, command)) {
+					break;
+				}
+			}
+
+			if (insert < command) {
+				System.arraycopy(order, insert, order, insert + 1, command - insert);
+				commandsReordered++;
+			}
+			order[insert] = command;
+		}
+	}
+
+	private boolean sameState(int a, int b) {
+		return ops[a] == ops[b] && colors[a] == colors[b]
+				&& (ops[a] != LINE || data[a * STRIDE + 4] == data[b * STRIDE + 4]);
+	}
+
+	private boolean overlaps(int a, int b) {
+		int at = a * STRIDE;
+		int bt = b * STRIDE;
+		float marginA = margin(a);
+		float marginB = margin(b);
+
+		return Math.min(data[at], data[at + 2]) - marginA < Math.max(data[bt], data[bt + 2]) + marginB
+				&& Math.min(data[bt], data[bt + 2]) - marginB < Math.max(data[at], data[at + 2]) + marginA
+				&& Math.min(data[at + 1], data[at + 3]) - marginA < Math.max(data[bt + 1], data[bt + 3]) + marginB
+				&& Math.min(data[bt + 1], data[bt + 3]) - marginB < Math.max(data[at + 1], data[at + 3]) + marginA;
+	}
+
+	/**
+	 * Returns how far a command may draw outside the box of its stored coordinates.
+	 */
+	private float margin(int command) {
+		return ops[command] == LINE ? data[command * STRIDE + 4] / 2 + AA_MARGIN : AA_MARGIN;
+	}
+
+	/**
+	 * Draws a run of rects, merging each rect into the previous one when they share a full edge.
+	 * Rects that share an edge do not overlap, so merging them does not change blending.
+	 */
+	private void drawRects(Canvas canvas, Paint paint, int from, int to) {
+		int at = order[from] * STRIDE;
+		float left = data[at];
+		float top = data[at + 1];
+		float right = data[at + 2];
+		float bottom = data[at + 3];
+
+		for (int k = from + 1; k < to; k++) {
+			at = order[k] * STRIDE;
+
+			if (data[at + 1] == top && data[at + 3] == bottom && data[at] == right) {
+				right = data[at + 2];
+			} else if (data[at] == left && data[at + 2] == right && data[at + 1] == bottom) {
+				bottom = data[at + 3];
+			} else {
+				canvas.drawRect(Rect.makeLTRB(left, top, right, bottom), paint);
+				drawCallsIssued++;
+
+				left = data[at];
+				top = data[at + 1];
+				right = data[at + 2];
+				bottom = data[at + 3];
+			}
+		}
+
+		canvas.drawRect(Rect.makeLTRB(left, top, right, bottom), paint);
+		drawCallsIssued++;
+	}
+
+	private void drawLines(Canvas canvas, Paint paint, int from, int to) {
+		int length = (to - from) * 4;
+		int bucket = 32 - Integer.numberOfLeadingZeros(length - 1);
+
+		float[] coords = lineCoords[bucket];
+		if (coords == null) {
+			coords = new float[1 << bucket];
+			lineCoords[bucket] = coords;
+		}
+
+		for (int k = from; k < to; k++) {
+			System.arraycopy(data, order[k] * STRIDE, coords, (k - from) * 4, 4);
+		}
+		Arrays.fill(coords, length, coords.length, 0);
+
+		paint.setStroke(true);
+		paint.setStrokeWidth(data[order[from] * STRIDE + 4]);
+
+		canvas.drawLines(coords, paint);
+		drawCallsIssued++;
+	}
+}
@@ -0,0 +1,260 @@
+package cn.pupperclient.skimca.context;
+
+import org.lwjgl.opengl.GL33;
+
+import java.util.Arrays;
+
+/**
+ * Measures where the time of each {@link SkiaContext#draw} goes. <br/>
+ * CPU time is split into the {@link Phase}s of a frame. GPU time is measured with a pair of
+ * {@code GL_TIMESTAMP} queries around the frame; results are read back a few frames later,
+ * only once they are available, so profiling never stalls the pipeline. Timestamps are used
+ * instead of {@code GL_TIME_ELAPSED} because those cannot nest with Minecraft's own timer query.
+ * Backends without a GPU context only get CPU times. <br/>
+ * Samples are kept in a ring of the last {@link #CAPACITY} frames. Only the outermost
+ * {@link SkiaContext#draw} is profiled; nested draws are part of its record phase.
+ * Must only be used on the render thread.
+ */
+public final class FrameProfiler {
+
+	/** The CPU phases of a frame, in order. */
+	public enum Phase {
+		/** State setup, image uploads and the drawing logic recording into the canvas. */
+		RECORD,
+		/** {@code DirectContext.flush}, where Skia turns the recording into GL calls. */
+		FLUSH,
+		/** Restoring the GL state Minecraft expects. */
+		RESTORE
+	}
+
+	/** Number of frames kept. */
+	public static final int CAPACITY = 240;
+
+	/** Frames whose GPU queries may be in flight at once. */
+	private static final int QUERY_FRAMES = 4;
+
+	private static final Phase[] PHASES = Phase.values();
+
+	private static boolean enabled = Boolean.getBoolean("skimca.profiler");
+
+	/** CPU nanoseconds per phase and frame slot. */
+	private static final long[][] cpuNanos = new long[PHASES.length][CAPACITY];
+
+	/** GPU nanoseconds per frame slot, or -1 if not (yet) known. */
+	private static final long[] gpuNanos = new long[CAPACITY];
+
+	/** Number of frames recorded; the frame being recorded has this number. */
+	private static long frameCount;
+
+	/** Whether the current outermost frame is being recorded. */
+	private static boolean active;
+
+	/** Whether the current frame is also timed on the GPU. */
+	private static boolean gpuTimed;
+
+	private static Phase phase;
+	private static long phaseStart;
+
+	/** Start and end timestamp query per in-flight frame, created on first use. */
+	private static int[] startQueries;
+	private static int[] endQueries;
+
+	/** The frame each query pair was issued for, or -1 if the pair is free. */
+	private static final long[] queryFrames = new long[QUERY_FRAMES];
+
+	static {
+		Arrays.fill(gpuNanos, -1);
+		Arrays.fill(queryFrames, -1);
+	}
+
+	private FrameProfiler() {
+	}
+
+	/**
+	 * Enables or disables profiling. Disabled by default, or enabled at startup with
+	 * {@code -Dskimca.profiler=true}. Takes effect at the next frame.
+	 *
+	 * @param enabled whether to profile frames
+	 */
+	public static void setEnabled(boolean enabled) {
+		FrameProfiler.enabled = enabled;
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Starts a frame in the {@link Phase#RECORD} phase. Called by {@link SkiaContext#draw}.
+	 */
+	static void begin() {
+		active = enabled;
+		if (!active) {
+			return;
+		}
+
+		gpuTimed = SkiaContext.getContext() != null;
+		if (gpuTimed) {
+			collectGpuResults();
+		}
+
+		int slot = (int) (frameCount % CAPACITY);
+		for (long[] nanos : cpuNanos) {
+			nanos[slot] = 0;
+		}
+		gpuNanos[slot] = -1;
+
+		if (gpuTimed) {
+			int pair = (int) (frameCount % QUERY_FRAMES);
+			// A pair still in flight after QUERY_FRAMES frames is dropped rather than waited for
+			queryFrames[pair] = frameCount;
+			GL33.glQueryCounter(startQueries[pair], GL33.GL_TIMESTAMP);
+		}
+
+		phase = Phase.RECORD;
+		phaseStart = System.nanoTime();
+	}
+
+	/**
+	 * Ends the current phase and starts the given one.
+	 * Called by {@link SkiaContext#draw}.
+	 *
+	 * @param next the phase starting now
+	 */
+	static void phase(Phase next) {
+		if (!active) {
+			return;
+		}
+
+		long now = System.nanoTime();
+		cpuNanos[phase.ordinal()][(int) (frameCount % CAPACITY)] += now - phaseStart;
+		phase = next;
+		phaseStart = now;
+	}
+
+	/**
+	 * Ends the frame. Called by {@link SkiaContext#draw}.
+	 */
+	static void end() {
+		if (!active) {
+			return;
+		}
+
+		long now = System.nanoTime();
+		cpuNanos[phase.ordinal()][(int) (frameCount % CAPACITY)] += now - phaseStart;
+
+		if (gpuTimed) {
+			GL33.glQueryCounter(endQueries[(int) (frameCount % QUERY_FRAMES)], GL33.GL_TIMESTAMP);
+		}
+
+		frameCount++;
+		active = false;
+	}
+
+	/**
+	 * Returns the number of frames recorded since profiling was first enabled.
+	 *
+	 * @return the frame count
+	 */
+	public static long getFrameCount() {
+		return frameCount;
+	}
+
+	/**
+	 * Returns how many of the most recent frames can be read.
+	 *
+	 * @return the number of available samples, at most {@link #CAPACITY}
+	 */
+	public static int getSampleCount() {
+		return (int) Math.min(frameCount, CAPACITY);
+	}
+
+	/**
+	 * Returns the CPU time a phase took in a recent frame.
+	 *
+	 * @param phase the phase
+	 * @param age   0 for the last completed frame, 1 for the one before, ...
+	 * @return the CPU time in nanoseconds
+	 */
+	public static long getCpuNanos(Phase phase, int age) {
+		return cpuNanos[phase.ordinal()][slotOf(age)];
+	}
+
+	/**
+	 * Returns the CPU time of all phases of a recent frame.
+	 *
+	 * @param age 0 for the last completed frame, 1 for the one before, ...
+	 * @return the CPU time in nanoseconds
+	 */
+	public static long getCpuNanos(int age) {
+		int slot = slotOf(age);
+		long total = 0;
+		for (long[] nanos : cpuNanos) {
+			total += nanos[slot];
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the GPU time of a recent frame. The result of a frame becomes available
+	 * a few frames after it was drawn.
+	 *
+	 * @param age 0 for the last completed frame, 1 for the one before, ...
+	 * @return the GPU time in nanoseconds, or -1 if it is not known (yet)
+	 */
+	public static long getGpuNanos(int age) {
+		return gpuNanos[slotOf(age)];
+	}
+
+	/**
+	 * Clears all samples. Queries still in flight are discarded.
+	 */
+	public static void reset() {
+		for (long[] nanos : cpuNanos) {
+			Arrays.fill(nanos, 0);
+		}
+		Arrays.fill(gpuNanos, -1);
+		Arrays.fill(queryFrames, -1);
+		frameCount = 0;
+	}
+
+	private static int slotOf(int age) {
+		if (age < 0 || age >= getSampleCount()) {
+			throw new IndexOutOfBoundsException("No sample of age " + age + ", have " + getSampleCount());
+		}
+		return (int) ((frameCount - 1 - age) % CAPACITY);
+	}
+
+	/**
+	 * Reads back every finished query pair without waiting for the ones still in flight.
+	 */
+	private static void collectGpuResults() {
+		if (startQueries == null) {
+			startQueries = new int[QUERY_FRAMES];
+			endQueries = new int[QUERY_FRAMES];
+			GL33.glGenQueries(startQueries);
+			GL33.glGenQueries(endQueries);
+			return;
+		}
+
+		for (int pair = 0; pair < QUERY_FRAMES; pair++) {
+			long frame = queryFrames[pair];
+			if (frame < 0 || frame >= frameCount) {
+				continue;
+			}
+
+			if (GL33.glGetQueryObjecti(endQueries[pair], GL33.GL_QUERY_RESULT_AVAILABLE) == 0) {
+				continue;
+			}
+
+			long start = GL33.glGetQueryObjecti64(startQueries[pair], GL33.GL_QUERY_RESULT);
+			long end = GL33.glGetQueryObjecti64(endQueries[pair], GL33.GL_QUERY_RESULT);
+			queryFrames[pair] = -1;
+
+			// The slot may have been reused if the result took longer than the ring to arrive
+			if (frameCount - frame <= CAPACITY) {
+				gpuNanos[(int) (frame % CAPACITY)] = end - start;
+			}
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package cn.pupperclient.skimca.context;
+
+import com.mojang.blaze3d.platform.GlConst;
+import com.mojang.blaze3d.systems.RenderSystem;
+import io.github.humbleui.skija.*;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.render.BufferRenderer;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL33;
+
+/**
+ * Draws into Minecraft's main framebuffer through OpenGL. <br/>
+ * Each frame hands the GL state over to Skia and back, in the {@link GLStateMode}
+ * selected on {@link SkiaContext}.
+ */
+public class GLBackend implements SkiaBackend {
+
+	/**
+	 * The Skia state caches Minecraft can invalidate between frames. Fixed-function,
+	 * path-rendering and MSAA toggles are never touched by Minecraft's core-profile renderer.
+	 */
+	private static final GLBackendState[] TRACKED_RESET_STATES = {
+			GLBackendState.RENDER_TARGET, GLBackendState.TEXTURE_BINDING, GLBackendState.VIEW,
+			GLBackendState.BLEND, GLBackendState.VERTEX, GLBackendState.STENCIL,
+			GLBackendState.PIXEL_STORE, GLBackendState.PROGRAM, GLBackendState.MISC
+	};
+
+	private final GLStateTracker glState = new GLStateTracker();
+
+	private DirectContext context;
+	private BackendRenderTarget renderTarget;
+
+	/** The mode the current frame was started in, so it is ended the same way. */
+	private GLStateMode frameMode = GLStateMode.FULL;
+
+	@Override
+	public String getName() {
+		return "gl";
+	}
+
+	@Override
+	public Surface createSurface(int width, int height) {
+
+		if (context == null) {
+			context = DirectContext.makeGL();
+		}
+
+		if (renderTarget != null) {
+			renderTarget.close();
+			renderTarget = null;
+		}
+
+		renderTarget = BackendRenderTarget.makeGL(width, height, 0, 8,
+				MinecraftClient.getInstance().getFramebuffer().fbo, GL11.GL_RGBA8);
+		return Surface.wrapBackendRenderTarget(context, renderTarget, SurfaceOrigin.BOTTOM_LEFT,
+				SurfaceColorFormat.RGBA_8888, ColorSpace.getSRGB());
+	}
+
+	@Override
+	public DirectContext getContext() {
+		return context;
+	}
+
+	@Override
+	public void beginFrame(Surface surface) {
+		frameMode = SkiaContext.getGLStateMode();
+
+		RenderSystem.pixelStore(GlConst.GL_UNPACK_ROW_LENGTH, 0);
+		RenderSystem.pixelStore(GlConst.GL_UNPACK_SKIP_PIXELS, 0);
+		RenderSystem.pixelStore(GlConst.GL_UNPACK_SKIP_ROWS, 0);
+		RenderSystem.pixelStore(GlConst.GL_UNPACK_ALIGNMENT, 4);
+		RenderSystem.clearColor(0f, 0f, 0f, 0f);
+
+		if (frameMode == GLStateMode.TRACKED) {
+			glState.save();
+			context.resetGL(TRACKED_RESET_STATES);
+		} else {
+			context.resetGLAll();
+		}
+	}
+
+	@Override
+	public void flush(Surface surface) {
+		context.flush();
+	}
+
+	@Override
+	public void endFrame(Surface surface) {
+		if (frameMode == GLStateMode.TRACKED) {
+			glState.restore();
+		} else {
+			restoreFullState();
+		}
+	}
+
+	/**
+	 * Returns how many GL calls, queries included, the last frame needed to save and restore
+	 * Minecraft's state in {@link GLStateMode#TRACKED} mode.
+	 *
+	 * @return the number of GL calls
+	 */
+	public int getLastRestoreCalls() {
+		return glState.getLastRestoreCalls();
+	}
+
+	@Override
+	public void close() {
+		if (renderTarget != null) {
+			renderTarget.close();
+			renderTarget = null;
+		}
+
+		if (context != null) {
+			// Images wrapping Minecraft's textures were adopted by Skia; abandoning the context
+			// releases them without deleting those textures
+			context.abandon();
+			context.close();
+			context = null;
+		}
+	}
+
+	/**
+	 * Forces the GL state Minecraft expects after a frame, through both
+	 * {@link RenderSystem} and raw GL since Skia bypassed Minecraft's state cache.
+	 */
+	private static void restoreFullState() {
+		BufferRenderer.reset();
+		GL33.glBindSampler(0, 0);
+		RenderSystem.disableBlend();
+		GL11.glDisable(GL11.GL_BLEND);
+		RenderSystem.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE);
+		GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE);
+		RenderSystem.blendEquation(GL33.GL_FUNC_ADD);
+		GL33.glBlendEquation(GL33.GL_FUNC_ADD);
+		RenderSystem.colorMask(true, true, true, true);
+		GL11.glColorMask(true, true, true, true);
+		RenderSystem.depthMask(true);
+		GL11.glDepthMask(true);
+		RenderSystem.disableScissor();
+		GL11.glDisable(GL11.GL_SCISSOR_TEST);
+		GL11.glDisable(GL11.GL_STENCIL_TEST);
+		RenderSystem.disableDepthTest();
+		GL11.glDisable(GL11.GL_DEPTH_TEST);
+		GL13.glActiveTexture(GL13.GL_TEXTURE0);
+		RenderSystem.activeTexture(GL13.GL_TEXTURE0);
+		RenderSystem.disableCull();
+	}
+}
@@ -0,0 +1,18 @@
+package cn.pupperclient.skimca.context;
+
+/**
+ * How {@link SkiaContext#draw} hands the OpenGL state over between Minecraft and Skia.
+ */
+public enum GLStateMode {
+	/**
+	 * Resets every Skia state cache before drawing and forces a fixed set of
+	 * Minecraft states afterwards, whether they changed or not.
+	 */
+	FULL,
+	/**
+	 * Resets only the Skia state caches Minecraft can invalidate, and afterwards puts back
+	 * the exact state Minecraft had, read mostly from its own state cache rather than queried.
+	 * See {@link GLStateTracker}.
+	 */
+	TRACKED
+}
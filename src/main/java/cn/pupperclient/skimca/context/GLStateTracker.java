@@ -0,0 +1,143 @@
+package cn.pupperclient.skimca.context;
+
+import cn.pupperclient.skimca.mixins.BlendFuncStateAccessor;
+import cn.pupperclient.skimca.mixins.CapabilityStateAccessor;
+import cn.pupperclient.skimca.mixins.CapabilityTrackerAccessor;
+import cn.pupperclient.skimca.mixins.ColorMaskAccessor;
+import cn.pupperclient.skimca.mixins.DepthTestStateAccessor;
+import cn.pupperclient.skimca.mixins.GlStateManagerAccessor;
+import cn.pupperclient.skimca.mixins.Texture2DStateAccessor;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL33;
+
+/**
+ * Puts back the OpenGL state Skia can clobber once a frame is drawn. <br/>
+ * Rather than forcing a fixed state through both {@code RenderSystem} and raw GL, the exact
+ * state Minecraft had before the frame is put back, so {@code GlStateManager}'s shadow copy
+ * stays valid without being rewritten. <br/>
+ * The state {@code GlStateManager} shadows (capabilities, blend function, masks and texture
+ * bindings) is read from that shadow copy, which costs no GL call. The rest is only known to
+ * the driver and is snapshot with {@code glGet*} before the frame; a query makes a threaded
+ * driver wait until it has caught up, so there is one per state Minecraft does not shadow and
+ * nothing is queried after the frame. Skia's changes are therefore unknown, and every tracked
+ * state is set back; setters are only queued and never wait. <br/>
+ * Used by {@link GLBackend} in {@link GLStateMode#TRACKED} mode. Must only be used on the render thread.
+ */
+final class GLStateTracker {
+
+	/** Texture units whose bindings are tracked; Minecraft's shaders sample from the first three. */
+	private static final int TEXTURE_UNITS = 3;
+
+	/** The {@code glGet*} calls {@link #save()} makes. */
+	private static final int QUERIES = 10;
+
+	private boolean stencilTest;
+	private int blendEquationRgb;
+	private int blendEquationAlpha;
+
+	private final int[] viewport = new int[4];
+	private final int[] scissorBox = new int[4];
+
+	private int program;
+	private int vertexArray;
+	private int arrayBuffer;
+	private int drawFramebuffer;
+	private int readFramebuffer;
+
+	private int lastRestoreCalls;
+
+	/**
+	 * Snapshots the state {@code GlStateManager} does not shadow. Called before Skia issues any GL command.
+	 */
+	void save() {
+		stencilTest = GL11.glIsEnabled(GL11.GL_STENCIL_TEST);
+		blendEquationRgb = GL11.glGetInteger(GL20.GL_BLEND_EQUATION_RGB);
+		blendEquationAlpha = GL11.glGetInteger(GL20.GL_BLEND_EQUATION_ALPHA);
+
+		GL11.glGetIntegerv(GL11.GL_VIEWPORT, viewport);
+		GL11.glGetIntegerv(GL11.GL_SCISSOR_BOX, scissorBox);
+
+		program = GL11.glGetInteger(GL20.GL_CURRENT_PROGRAM);
+		vertexArray = GL11.glGetInteger(GL30.GL_VERTEX_ARRAY_BINDING);
+		arrayBuffer = GL11.glGetInteger(GL15.GL_ARRAY_BUFFER_BINDING);
+		drawFramebuffer = GL11.glGetInteger(GL30.GL_DRAW_FRAMEBUFFER_BINDING);
+		readFramebuffer = GL11.glGetInteger(GL30.GL_READ_FRAMEBUFFER_BINDING);
+	}
+
+	/**
+	 * Restores the state saved by {@link #save()} and the state shadowed by {@code GlStateManager}.
+	 *
+	 * @return the number of GL calls made by this frame's save and restore
+	 */
+	int restore() {
+		int calls = QUERIES;
+
+		calls += restoreCapability(GL11.GL_BLEND, isEnabled(GlStateManagerAccessor.getBlend()));
+		calls += restoreCapability(GL11.GL_DEPTH_TEST, isEnabled(GlStateManagerAccessor.getDepth()));
+		calls += restoreCapability(GL11.GL_CULL_FACE, isEnabled(GlStateManagerAccessor.getCull()));
+		calls += restoreCapability(GL11.GL_SCISSOR_TEST, isEnabled(GlStateManagerAccessor.getScissor()));
+		calls += restoreCapability(GL11.GL_STENCIL_TEST, stencilTest);
+
+		BlendFuncStateAccessor blend = (BlendFuncStateAccessor) GlStateManagerAccessor.getBlend();
+		GL14.glBlendFuncSeparate(blend.getSrcFactorRgb(), blend.getDstFactorRgb(),
+				blend.getSrcFactorAlpha(), blend.getDstFactorAlpha());
+		GL20.glBlendEquationSeparate(blendEquationRgb, blendEquationAlpha);
+
+		ColorMaskAccessor colorMask = (ColorMaskAccessor) GlStateManagerAccessor.getColorMask();
+		GL11.glColorMask(colorMask.getRed(), colorMask.getGreen(), colorMask.getBlue(), colorMask.getAlpha());
+		GL11.glDepthMask(((DepthTestStateAccessor) GlStateManagerAccessor.getDepth()).getMask());
+
+		GL11.glViewport(viewport[0], viewport[1], viewport[2], viewport[3]);
+		GL11.glScissor(scissorBox[0], scissorBox[1], scissorBox[2], scissorBox[3]);
+
+		// The element buffer is part of the vertex array, the array buffer is not
+		GL20.glUseProgram(program);
+		GL30.glBindVertexArray(vertexArray);
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, arrayBuffer);
+		GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, drawFramebuffer);
+		GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, readFramebuffer);
+		calls += 10;
+
+		Object[] textures = GlStateManagerAccessor.getTextures();
+		for (int unit = 0; unit < TEXTURE_UNITS; unit++) {
+			// Minecraft never binds sampler objects, only Skia does
+			GL33.glBindSampler(unit, 0);
+			GL13.glActiveTexture(GL13.GL_TEXTURE0 + unit);
+			GL11.glBindTexture(GL11.GL_TEXTURE_2D, ((Texture2DStateAccessor) textures[unit]).getBoundTexture());
+			calls += 3;
+		}
+		GL13.glActiveTexture(GL13.GL_TEXTURE0 + GlStateManagerAccessor.getActiveTexture());
+		calls++;
+
+		lastRestoreCalls = calls;
+		return calls;
+	}
+
+	/**
+	 * Returns how many GL calls the last frame's {@link #save()} and {@link #restore()} made,
+	 * the {@code glGet*} queries included.
+	 *
+	 * @return the number of GL calls
+	 */
+	int getLastRestoreCalls() {
+		return lastRestoreCalls;
+	}
+
+	private static boolean isEnabled(Object state) {
+		return ((CapabilityTrackerAccessor) ((CapabilityStateAccessor) state).getCapState()).isEnabled();
+	}
+
+	private static int restoreCapability(int capability, boolean enabled) {
+		if (enabled) {
+			GL11.glEnable(capability);
+		} else {
+			GL11.glDisable(capability);
+		}
+		return 1;
+	}
+}
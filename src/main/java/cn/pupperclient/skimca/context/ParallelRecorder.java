@@ -0,0 +1,191 @@
+package cn.pupperclient.skimca.context;
+
+import cn.pupperclient.skimca.Skimca;
+import cn.pupperclient.skimca.SkimcaLogger;
+import cn.pupperclient.skimca.paint.PaintPool;
+import io.github.humbleui.skija.Canvas;
+import io.github.humbleui.skija.Matrix33;
+import io.github.humbleui.skija.Picture;
+import io.github.humbleui.skija.PictureRecorder;
+import io.github.humbleui.types.Rect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Records independent widgets into {@link Picture}s on worker threads and composites them
+ * on the render thread. <br/>
+ * Recording only builds a CPU-side list of drawing commands, so widgets that are expensive
+ * to draw (long lists, graphs, many labels) can be recorded in parallel while the render thread
+ * does other work. {@link #draw()} then waits for the recordings and draws them in the order
+ * they were {@link #record}ed, so the result is the same as drawing them one after another. <br/>
+ * Content is drawn in widget coordinates, from {@code (0, 0)} to {@code (width, height)}, and
+ * everything drawn through {@code Skimca} on the worker goes into the widget's picture.
+ * The content must only draw: it must not call {@link SkiaContext#draw}, use a {@link RetainedLayer}
+ * or touch game state the render thread is changing. Images cannot be drawn on a worker: loading,
+ * wrapping or looking up an image while recording throws {@link IllegalStateException}, so keep
+ * widgets with images on the render thread. <br/>
+ * A recorder is reused across frames; {@link #record} and {@link #draw()} must be called on the
+ * render thread, inside {@link SkiaContext#draw}.
+ */
+public class ParallelRecorder implements AutoCloseable {
+
+	private final Executor executor;
+
+	/** Widgets recorded this frame, in compositing order. */
+	private final List<Widget> widgets = new ArrayList<>();
+
+	private long widgetsRecorded;
+	private long recordingFailures;
+
+	/**
+	 * Creates a recorder running on the common fork-join pool.
+	 */
+	public ParallelRecorder() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a recorder running on the given executor. A pool with a thread per core fits best;
+	 * each worker thread keeps its own paint pool, so a new thread per task allocates paints every time.
+	 *
+	 * @param executor the executor recording widgets
+	 */
+	public ParallelRecorder(Executor executor) {
+		this.executor = Objects.requireNonNull(executor, "executor");
+	}
+
+	/**
+	 * Starts recording a widget on a worker thread. It is drawn by the next {@link #draw()}.
+	 *
+	 * @param x       the x coordinate of the widget's top left corner
+	 * @param y       the y coordinate of the widget's top left corner
+	 * @param width   the width of the content
+	 * @param height  the height of the content
+	 * @param content the drawing logic, run on a worker thread
+	 */
+	public void record(float x, float y, float width, float height, Consumer<Canvas> content) {
+		if (widgets.isEmpty()) {
+			// Shaped text and paths handed to workers must stay open until the pictures are drawn
+			Skimca.getTextCache().beginDeferredClose();
+			Skimca.getPathCache().beginDeferredClose();
+		}
+
+		CompletableFuture<Picture> picture = CompletableFuture.supplyAsync(
+				() -> recordPicture(width, height, content), executor);
+		widgets.add(new Widget(x, y, picture));
+	}
+
+	/**
+	 * Waits for every widget recorded since the last call and draws them in order on the current canvas.
+	 * A widget whose content threw is logged and skipped.
+	 */
+	public void draw() {
+		if (widgets.isEmpty()) {
+			return;
+		}
+
+		try {
+			Canvas canvas = SkiaContext.getCanvas();
+
+			for (Widget widget : widgets) {
+				Picture picture;
+				try {
+					picture = widget.picture().join();
+				} catch (RuntimeException e) {
+					recordingFailures++;
+					SkimcaLogger.error("ParallelRecorder", "Failed to record widget", e);
+					continue;
+				}
+
+				try (picture) {
+					canvas.drawPicture(picture, Matrix33.makeTranslate(widget.x(), widget.y()), null);
+				}
+				widgetsRecorded++;
+			}
+		} finally {
+			widgets.clear();
+			Skimca.getTextCache().endDeferredClose();
+			Skimca.getPathCache().endDeferredClose();
+		}
+	}
+
+	/**
+	 * Returns how many widgets are recording or waiting to be drawn.
+	 *
+	 * @return the number of pending widgets
+	 */
+	public int getPendingCount() {
+		return widgets.size();
+	}
+
+	/**
+	 * Returns how many widgets were recorded and drawn since the recorder was created.
+	 *
+	 * @return the number of widgets
+	 */
+	public long getWidgetsRecorded() {
+		return widgetsRecorded;
+	}
+
+	/**
+	 * Returns how many widgets were skipped because their content threw.
+	 *
+	 * @return the number of failed recordings
+	 */
+	public long getRecordingFailures() {
+		return recordingFailures;
+	}
+
+	/**
+	 * Waits for pending recordings and releases them without drawing.
+	 */
+	@Override
+	public void close() {
+		if (widgets.isEmpty()) {
+			return;
+		}
+
+		for (Widget widget : widgets) {
+			widget.picture().handle((picture, error) -> {
+				if (picture != null) {
+					picture.close();
+				}
+				return null;
+			}).join();
+		}
+
+		widgets.clear();
+		Skimca.getTextCache().endDeferredClose();
+		Skimca.getPathCache().endDeferredClose();
+	}
+
+	private static Picture recordPicture(float width, float height, Consumer<Canvas> content) {
+		try (PictureRecorder recorder = new PictureRecorder()) {
+			Canvas canvas = recorder.beginRecording(Rect.makeWH(width, height));
+
+			SkiaContext.beginRecording(canvas);
+			try {
+				content.accept(canvas);
+			} finally {
+				SkiaContext.endRecording();
+			}
+
+			return recorder.finishRecordingAsPicture();
+		} finally {
+			// The picture holds copies of the paints, so a worker's pool can be reused right away.
+			// The drawing thread's pool is still in use by the frame and is reset by it.
+			if (!SkiaContext.isDrawThread()) {
+				PaintPool.get().reset();
+			}
+		}
+	}
+
+	private record Widget(float x, float y, CompletableFuture<Picture> picture) {
+	}
+}
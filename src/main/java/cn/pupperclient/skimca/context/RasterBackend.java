@@ -0,0 +1,47 @@
+package cn.pupperclient.skimca.context;
+
+import io.github.humbleui.skija.DirectContext;
+import io.github.humbleui.skija.Surface;
+
+/**
+ * Draws into a CPU raster surface. <br/>
+ * Needs neither an OpenGL context nor a running game, so it is meant for tests, benchmarks
+ * and headless CI. Nothing drawn here appears on screen; read the result back with
+ * {@code SkiaContext.getSurface().makeImageSnapshot()} or {@code readPixels}.
+ * Each frame starts from a transparent surface.
+ */
+public class RasterBackend implements SkiaBackend {
+
+	@Override
+	public String getName() {
+		return "raster";
+	}
+
+	@Override
+	public Surface createSurface(int width, int height) {
+		return Surface.makeRasterN32Premul(width, height);
+	}
+
+	@Override
+	public DirectContext getContext() {
+		return null;
+	}
+
+	@Override
+	public void beginFrame(Surface surface) {
+		surface.getCanvas().clear(0);
+	}
+
+	@Override
+	public void flush(Surface surface) {
+		// Raster drawing happens immediately, there is nothing to submit
+	}
+
+	@Override
+	public void endFrame(Surface surface) {
+	}
+
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,243 @@
+package cn.pupperclient.skimca.context;
+
+import io.github.humbleui.skija.Canvas;
+import io.github.humbleui.skija.DirectContext;
+import io.github.humbleui.skija.Image;
+import io.github.humbleui.skija.ImageInfo;
+import io.github.humbleui.skija.Matrix33;
+import io.github.humbleui.skija.Picture;
+import io.github.humbleui.skija.PictureRecorder;
+import io.github.humbleui.skija.Surface;
+import io.github.humbleui.types.Rect;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A cached group of drawing calls for widgets that rarely change. <br/>
+ * The first {@link #draw} records its drawing logic into a {@link Picture}; later calls replay
+ * the recording with a single {@code drawPicture} until the layer is {@link #invalidate()}d or its
+ * key changes. Everything drawn through {@code Skimca} while recording goes into the layer. <br/>
+ * In {@link Mode#IMAGE} mode the recording is additionally rasterized once into an offscreen
+ * image, so replaying costs one {@code drawImage} regardless of how many primitives it holds. <br/>
+ * The content is drawn in layer coordinates, from {@code (0, 0)} to {@code (width, height)}.
+ * Must only be used on the render thread, inside {@link SkiaContext#draw}.
+ */
+public class RetainedLayer implements AutoCloseable {
+
+	/** How a layer keeps its content. */
+	public enum Mode {
+		/** Keep the recorded drawing calls and replay them every frame. */
+		PICTURE,
+		/** Rasterize the recording once and draw the resulting image every frame. */
+		IMAGE
+	}
+
+	private final Mode mode;
+
+	private float width;
+	private float height;
+
+	/** Pixels per layer unit when rasterizing in {@link Mode#IMAGE} mode. */
+	private float rasterScale = 1;
+
+	private Picture picture;
+	private Image image;
+	private Object key;
+	private boolean dirty = true;
+
+	/** The context generation the content was recorded on, see {@link SkiaContext#getContextGeneration()}. */
+	private int generation;
+
+	private long recordCount;
+
+	/**
+	 * Creates a layer replaying a picture.
+	 *
+	 * @param width  the width of the content
+	 * @param height the height of the content
+	 */
+	public RetainedLayer(float width, float height) {
+		this(width, height, Mode.PICTURE);
+	}
+
+	/**
+	 * Creates a layer.
+	 *
+	 * @param width  the width of the content
+	 * @param height the height of the content
+	 * @param mode   how the layer keeps its content
+	 */
+	public RetainedLayer(float width, float height, Mode mode) {
+		this.width = width;
+		this.height = height;
+		this.mode = mode;
+	}
+
+	/**
+	 * Draws the layer at the given position, recording {@code content} first if the layer is dirty.
+	 *
+	 * @param x       the x coordinate of the layer's top left corner
+	 * @param y       the y coordinate of the layer's top left corner
+	 * @param content the drawing logic, only run when the layer is re-recorded
+	 */
+	public void draw(float x, float y, Consumer<Canvas> content) {
+		// Content recorded on a closed context may reference its textures
+		if (dirty || picture == null || generation != SkiaContext.getContextGeneration()) {
+			record(content);
+		}
+
+		Canvas canvas = SkiaContext.getCanvas();
+
+		if (mode == Mode.IMAGE && image != null) {
+			canvas.drawImageRect(image, Rect.makeXYWH(x, y, width, height));
+		} else {
+			canvas.drawPicture(picture, Matrix33.makeTranslate(x, y), null);
+		}
+	}
+
+	/**
+	 * Draws the layer at the given position, re-recording it if {@code key} differs
+	 * (by {@link Object#equals}) from the key of the last call. Lets a widget pass the state
+	 * it displays, e.g. a score or a list of lines, instead of tracking changes itself.
+	 *
+	 * @param x       the x coordinate of the layer's top left corner
+	 * @param y       the y coordinate of the layer's top left corner
+	 * @param key     the state the content depends on
+	 * @param content the drawing logic, only run when the layer is re-recorded
+	 */
+	public void draw(float x, float y, Object key, Consumer<Canvas> content) {
+		if (!Objects.equals(this.key, key)) {
+			this.key = key;
+			dirty = true;
+		}
+
+		draw(x, y, content);
+	}
+
+	/**
+	 * Marks the layer dirty, so its content is recorded again on the next {@link #draw}.
+	 */
+	public void invalidate() {
+		dirty = true;
+	}
+
+	public boolean isDirty() {
+		return dirty;
+	}
+
+	/**
+	 * Resizes the layer, invalidating it if the size changed.
+	 *
+	 * @param width  the width of the content
+	 * @param height the height of the content
+	 */
+	public void setSize(float width, float height) {
+		if (this.width != width || this.height != height) {
+			this.width = width;
+			this.height = height;
+			dirty = true;
+		}
+	}
+
+	/**
+	 * Sets how many pixels a layer unit covers when rasterizing in {@link Mode#IMAGE} mode,
+	 * typically the GUI scale the layer is drawn at. Invalidates the layer if it changed.
+	 *
+	 * @param rasterScale pixels per layer unit
+	 */
+	public void setRasterScale(float rasterScale) {
+		if (this.rasterScale != rasterScale) {
+			this.rasterScale = rasterScale;
+			dirty = true;
+		}
+	}
+
+	public float getWidth() {
+		return width;
+	}
+
+	public float getHeight() {
+		return height;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Returns how many times the content was recorded, for checking that a widget is actually cached.
+	 *
+	 * @return the number of recordings
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * Releases the recorded content. The layer records again if it is drawn afterwards.
+	 */
+	@Override
+	public void close() {
+		if (picture != null) {
+			picture.close();
+			picture = null;
+		}
+
+		if (image != null) {
+			image.close();
+			image = null;
+		}
+
+		dirty = true;
+	}
+
+	private void record(Consumer<Canvas> content) {
+		Picture recorded;
+
+		try (PictureRecorder recorder = new PictureRecorder()) {
+			Canvas canvas = recorder.beginRecording(Rect.makeWH(width, height));
+
+			SkiaContext.pushCanvas(canvas);
+			try {
+				content.accept(canvas);
+			} finally {
+				SkiaContext.popCanvas();
+			}
+
+			recorded = recorder.finishRecordingAsPicture();
+		}
+
+		close();
+		picture = recorded;
+
+		if (mode == Mode.IMAGE) {
+			image = rasterize(recorded);
+		}
+
+		dirty = false;
+		generation = SkiaContext.getContextGeneration();
+		recordCount++;
+	}
+
+	/**
+	 * Draws the picture into an offscreen surface, on the GPU when there is a GPU context.
+	 */
+	private Image rasterize(Picture picture) {
+		int pixelWidth = Math.max(1, (int) Math.ceil(width * rasterScale));
+		int pixelHeight = Math.max(1, (int) Math.ceil(height * rasterScale));
+		ImageInfo info = ImageInfo.makeN32Premul(pixelWidth, pixelHeight);
+
+		DirectContext context = SkiaContext.getContext();
+		Surface surface = context != null
+				? Surface.makeRenderTarget(context, false, info)
+				: Surface.makeRaster(info);
+
+		try (surface) {
+			Canvas canvas = surface.getCanvas();
+			canvas.scale(rasterScale, rasterScale);
+			canvas.drawPicture(picture);
+			return surface.makeImageSnapshot();
+		}
+	}
+}
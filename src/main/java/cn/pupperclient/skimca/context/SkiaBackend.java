@@ -0,0 +1,64 @@
+package cn.pupperclient.skimca.context;
+
+import io.github.humbleui.skija.DirectContext;
+import io.github.humbleui.skija.Surface;
+
+/**
+ * Where {@link SkiaContext} draws to. <br/>
+ * {@link GLBackend} draws into Minecraft's framebuffer on the GPU, {@link RasterBackend} into a
+ * CPU bitmap, so the drawing API, caches and event pipeline can run without a game or a GPU.
+ * Selected with {@link SkiaContext#setBackend} or {@code -Dskimca.backend=gl|raster}.
+ * Methods are called on the render thread.
+ */
+public interface SkiaBackend extends AutoCloseable {
+
+	/**
+	 * Returns a short name for logs, e.g. {@code "gl"}.
+	 *
+	 * @return the backend name
+	 */
+	String getName();
+
+	/**
+	 * Creates a surface of the given size. The previous surface has already been closed.
+	 *
+	 * @param width  the width in pixels
+	 * @param height the height in pixels
+	 * @return the new surface
+	 */
+	Surface createSurface(int width, int height);
+
+	/**
+	 * Returns the GPU context, for wrapping textures and creating GPU surfaces.
+	 *
+	 * @return the context, or {@code null} if the backend does not draw on the GPU
+	 */
+	DirectContext getContext();
+
+	/**
+	 * Prepares a frame, before any drawing logic runs.
+	 *
+	 * @param surface the surface being drawn to
+	 */
+	void beginFrame(Surface surface);
+
+	/**
+	 * Submits everything recorded into the surface so far.
+	 *
+	 * @param surface the surface being drawn to
+	 */
+	void flush(Surface surface);
+
+	/**
+	 * Finishes a frame after its last flush.
+	 *
+	 * @param surface the surface being drawn to
+	 */
+	void endFrame(Surface surface);
+
+	/**
+	 * Releases the backend's resources. Surfaces it created have already been closed.
+	 */
+	@Override
+	void close();
+}
@@ -1,85 +1,394 @@
 package cn.pupperclient.skimca.context;
 
-import com.mojang.blaze3d.platform.GlConst;
-import com.mojang.blaze3d.systems.RenderSystem;
+import cn.pupperclient.skimca.Skimca;
+import cn.pupperclient.skimca.SkimcaLogger;
+import cn.pupperclient.skimca.image.ImageCache;
+import cn.pupperclient.skimca.paint.PaintPool;
 import io.github.humbleui.skija.*;
-import net.minecraft.client.MinecraftClient;
-import net.minecraft.client.render.BufferRenderer;
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL33;
 
+import java.util.ArrayDeque;
 import java.util.function.Consumer;
 
 public class SkiaContext {
 
-	private static DirectContext context = null;
+	private static SkiaBackend backend = "raster".equalsIgnoreCase(System.getProperty("skimca.backend"))
+			? new RasterBackend()
+			: new GLBackend();
+
 	private static Surface surface;
-	private static BackendRenderTarget renderTarget;
+	private static int surfaceWidth;
+	private static int surfaceHeight;
+
+	private static GLStateMode glStateMode = "tracked".equalsIgnoreCase(System.getProperty("skimca.glState"))
+			? GLStateMode.TRACKED
+			: GLStateMode.FULL;
+
+	/** Nesting depth of {@link #draw} calls; only the outermost one sets up and flushes. */
+	private static int depth;
+
+	/** Flushes since the current frame started, and in the last completed frame. */
+	private static int frameFlushes;
+	private static int lastFrameFlushes;
+	private static long totalFlushes;
+
+	/** Canvases of retained layers being recorded, innermost last. Render thread only. */
+	private static final ArrayDeque<Canvas> redirects = new ArrayDeque<>();
+
+	private static boolean deferred = Boolean.getBoolean("skimca.deferred");
+
+	/** Whether the current frame defers, fixed when it starts. */
+	private static boolean frameDeferred;
+
+	/** Primitives waiting to be drawn to the current canvas in deferred mode. */
+	private static final DrawCommandBuffer commands = new DrawCommandBuffer();
+
+	/** The thread running the outermost {@link #draw}, the only one allowed to defer commands. */
+	private static Thread drawThread;
+
+	/** Bumped whenever the backend changes, so content made on the old context is recreated. */
+	private static int contextGeneration;
+
+	/** The canvas a {@link ParallelRecorder} worker is recording into, on that worker's thread. */
+	private static final ThreadLocal<Canvas> workerCanvas = new ThreadLocal<>();
 
+	/**
+	 * Returns the canvas drawing calls should go to: the canvas of the innermost
+	 * {@link RetainedLayer} being recorded, or the surface canvas otherwise.
+	 * Deferred commands are drawn first, so anything drawn on the returned canvas lands on top of them.
+	 * On a {@link ParallelRecorder} worker, this is the canvas of the widget being recorded.
+	 *
+	 * @return the current canvas
+	 */
 	public static Canvas getCanvas() {
-		return surface.getCanvas();
+		if (Thread.currentThread() != drawThread) {
+			Canvas recording = workerCanvas.get();
+			if (recording != null) {
+				return recording;
+			}
+		}
+
+		Canvas canvas = currentCanvas();
+		flushCommands(canvas);
+		return canvas;
 	}
 
-	public static void createSurface(int width, int height) {
+	/**
+	 * Sends drawing calls to the given canvas until the matching {@link #popCanvas()}.
+	 */
+	static void pushCanvas(Canvas canvas) {
+		flushCommands(currentCanvas());
+		redirects.addLast(canvas);
+	}
+
+	static void popCanvas() {
+		flushCommands(currentCanvas());
+		redirects.removeLast();
+	}
+
+	/**
+	 * Sends drawing calls of the calling thread to the given canvas until {@link #endRecording()}.
+	 * On the drawing thread this behaves like {@link #pushCanvas}.
+	 */
+	static void beginRecording(Canvas canvas) {
+		if (Thread.currentThread() == drawThread) {
+			pushCanvas(canvas);
+		} else {
+			workerCanvas.set(canvas);
+		}
+	}
+
+	static void endRecording() {
+		if (Thread.currentThread() == drawThread) {
+			popCanvas();
+		} else {
+			workerCanvas.remove();
+		}
+	}
+
+	/**
+	 * Returns whether the calling thread is the one running the outermost {@link #draw}.
+	 *
+	 * @return {@code true} on the drawing thread during a frame
+	 */
+	static boolean isDrawThread() {
+		return Thread.currentThread() == drawThread;
+	}
 
-		if (context == null) {
-			context = DirectContext.makeGL();
+	/**
+	 * Throws if the calling thread is recording a widget for a {@link ParallelRecorder}.
+	 * Images cannot be loaded or wrapped there, since the GPU context is single-threaded and
+	 * the worker does not hold the frame's guard against images being closed.
+	 *
+	 * @param user what is being used, for the exception message
+	 * @throws IllegalStateException if called from a recording worker
+	 */
+	public static void checkNotRecording(String user) {
+		if (workerCanvas.get() != null) {
+			throw new IllegalStateException(user + " cannot be used while recording on a ParallelRecorder worker ("
+					+ Thread.currentThread().getName() + ")");
 		}
+	}
+
+	private static Canvas currentCanvas() {
+		Canvas redirect = redirects.peekLast();
+		return redirect != null ? redirect : surface.getCanvas();
+	}
+
+	/**
+	 * Draws pending commands and applies pending saves and translation. Only the surface canvas
+	 * is deferred to, so nothing is replayed while a layer is being recorded.
+	 */
+	private static void flushCommands(Canvas canvas) {
+		if (Thread.currentThread() == drawThread && redirects.isEmpty()) {
+			commands.replay(canvas);
+		}
+	}
+
+	/**
+	 * Enables or disables deferred drawing. While enabled, rects, rounded rects, circles, lines
+	 * and text drawn through {@code Skimca} are collected in a {@link DrawCommandBuffer} and drawn
+	 * in batches, and {@code Skimca.save}, {@code translate} and {@code restore} are tracked by the
+	 * buffer. Takes effect from the next frame. Disabled by default, or enabled at startup with
+	 * {@code -Dskimca.deferred=true}. <br/>
+	 * Drawing directly on the {@code Canvas} passed to {@link #draw} bypasses the buffer;
+	 * get the canvas from {@link #getCanvas()} instead so pending commands are drawn first.
+	 *
+	 * @param deferred whether to defer primitives
+	 */
+	public static void setDeferred(boolean deferred) {
+		SkiaContext.deferred = deferred;
+	}
+
+	public static boolean isDeferred() {
+		return deferred;
+	}
+
+	/**
+	 * Returns the buffer to add primitives to instead of drawing them immediately.
+	 *
+	 * @return the command buffer, or {@code null} if deferred drawing is disabled, no frame is
+	 *         being drawn, the caller is not the drawing thread or a layer is being recorded
+	 */
+	public static DrawCommandBuffer getDeferredCommands() {
+		return frameDeferred && depth > 0 && Thread.currentThread() == drawThread && redirects.isEmpty()
+				? commands
+				: null;
+	}
+
+	/**
+	 * Returns the command buffer, for reading its batching statistics.
+	 *
+	 * @return the command buffer
+	 */
+	public static DrawCommandBuffer getCommandBuffer() {
+		return commands;
+	}
+
+	public static void createSurface(int width, int height) {
 
 		if (surface != null) {
 			surface.close();
 			surface = null;
 		}
 
-		if (renderTarget != null) {
-			renderTarget.close();
-			renderTarget = null;
+		surface = backend.createSurface(width, height);
+		surfaceWidth = width;
+		surfaceHeight = height;
+	}
+
+	/**
+	 * Switches to another backend, closing the current one. If a surface existed,
+	 * one of the same size is created on the new backend. <br/>
+	 * Everything made on the old context is released: wrapped textures and cached images are
+	 * loaded again when next drawn, and every {@link RetainedLayer} records again on its next draw.
+	 *
+	 * @param newBackend the backend to draw with
+	 * @throws IllegalStateException if called while drawing
+	 */
+	public static void setBackend(SkiaBackend newBackend) {
+		if (depth > 0) {
+			throw new IllegalStateException("Cannot switch backends while drawing");
+		}
+
+		boolean hadSurface = surface != null;
+		if (hadSurface) {
+			surface.close();
+			surface = null;
 		}
 
-		renderTarget = BackendRenderTarget.makeGL(width, height, 0, 8,
-				MinecraftClient.getInstance().getFramebuffer().fbo, GL11.GL_RGBA8);
-		surface = Surface.wrapBackendRenderTarget(context, renderTarget, SurfaceOrigin.BOTTOM_LEFT,
-				SurfaceColorFormat.RGBA_8888, ColorSpace.getSRGB());
+		backend.close();
+		Skimca.getImageHelper().releaseContextImages();
+		contextGeneration++;
+
+		backend = newBackend;
+		SkimcaLogger.info("SkiaContext", "Using " + newBackend.getName() + " backend");
+
+		if (hadSurface) {
+			createSurface(surfaceWidth, surfaceHeight);
+		}
 	}
 
+	/**
+	 * Returns a number that changes whenever the backend, and with it the GPU context, changes.
+	 */
+	static int getContextGeneration() {
+		return contextGeneration;
+	}
+
+	public static SkiaBackend getBackend() {
+		return backend;
+	}
+
+	/**
+	 * Returns the surface being drawn to, e.g. for reading back a raster frame.
+	 *
+	 * @return the surface, or {@code null} before {@link #createSurface}
+	 */
+	public static Surface getSurface() {
+		return surface;
+	}
+
+	/**
+	 * Runs drawing logic on the Skia canvas. <br/>
+	 * The outermost call prepares the backend (for OpenGL, hands the GL state over to Skia),
+	 * flushes and finishes the frame.
+	 * Calls nested inside it (e.g. from an event handler of {@code RenderSkiaEvent})
+	 * just run on the current canvas, so a frame is flushed once however many scopes it has.
+	 *
+	 * @param drawingLogic the drawing logic, receiving the canvas
+	 */
 	public static void draw(Consumer<Canvas> drawingLogic) {
+		if (depth > 0) {
+			depth++;
+			try {
+				drawingLogic.accept(getCanvas());
+			} finally {
+				depth--;
+			}
+			return;
+		}
+
+		depth = 1;
+		drawThread = Thread.currentThread();
+		frameDeferred = deferred;
+		// Images other threads evict during the frame stay open until it has been flushed
+		ImageCache images = Skimca.getImageHelper().getImageCache();
+		images.beginDeferredClose();
+		try {
+			drawFrame(drawingLogic);
+		} finally {
+			depth = 0;
+			drawThread = null;
+			// Commands are left over only if the drawing logic threw
+			commands.discard();
+			images.endDeferredClose();
+		}
+	}
+
+	private static void drawFrame(Consumer<Canvas> drawingLogic) {
+
+		FrameProfiler.begin();
+
+		backend.beginFrame(surface);
 
-		RenderSystem.pixelStore(GlConst.GL_UNPACK_ROW_LENGTH, 0);
-		RenderSystem.pixelStore(GlConst.GL_UNPACK_SKIP_PIXELS, 0);
-		RenderSystem.pixelStore(GlConst.GL_UNPACK_SKIP_ROWS, 0);
-		RenderSystem.pixelStore(GlConst.GL_UNPACK_ALIGNMENT, 4);
-		RenderSystem.clearColor(0f, 0f, 0f, 0f);
-		context.resetGLAll();
+		// Make images decoded in the background drawable, a few per frame
+		Skimca.getImageHelper().processUploads();
 
 		Canvas canvas = getCanvas();
 		drawingLogic.accept(canvas);
+		flushCommands(canvas);
+
+		FrameProfiler.phase(FrameProfiler.Phase.FLUSH);
+		flush();
+
+		// Everything recorded this frame has been submitted, so pooled paints can be reused
+		PaintPool.get().reset();
+
+		FrameProfiler.phase(FrameProfiler.Phase.RESTORE);
+
+		backend.endFrame(surface);
+
+		FrameProfiler.end();
+	}
+
+	/**
+	 * Selects how the GL state is handed over between Minecraft and Skia by the {@link GLBackend}.
+	 * Defaults to {@link GLStateMode#FULL}, or {@link GLStateMode#TRACKED}
+	 * with {@code -Dskimca.glState=tracked}. Takes effect at the next frame.
+	 *
+	 * @param mode the state handover mode
+	 */
+	public static void setGLStateMode(GLStateMode mode) {
+		glStateMode = mode;
+	}
+
+	public static GLStateMode getGLStateMode() {
+		return glStateMode;
+	}
+
+	/**
+	 * Returns how many GL calls, queries included, the last frame needed to save and restore
+	 * Minecraft's state in {@link GLStateMode#TRACKED} mode.
+	 *
+	 * @return the number of GL calls
+	 */
+	public static int getLastRestoreCalls() {
+		return backend instanceof GLBackend gl ? gl.getLastRestoreCalls() : 0;
+	}
+
+	/**
+	 * Submits everything recorded so far to the backend and counts the flush.
+	 * {@link #draw} already flushes once per frame; call this only when the GL results
+	 * are needed before the frame ends.
+	 */
+	public static void flush() {
+		flushCommands(currentCanvas());
+		backend.flush(surface);
+		frameFlushes++;
+		totalFlushes++;
+	}
+
+	/**
+	 * Returns whether a {@link #draw} call is in progress.
+	 *
+	 * @return {@code true} inside a draw scope
+	 */
+	public static boolean isDrawing() {
+		return depth > 0;
+	}
+
+	/**
+	 * Marks the end of a Minecraft frame, latching the flush count. Called by {@code GameRendererMixin}.
+	 */
+	public static void endFrame() {
+		lastFrameFlushes = frameFlushes;
+		frameFlushes = 0;
+	}
+
+	/**
+	 * Returns how many times the surface was flushed in the last completed frame.
+	 *
+	 * @return the number of flushes
+	 */
+	public static int getFlushesLastFrame() {
+		return lastFrameFlushes;
+	}
 
-		context.flush();
-
-		BufferRenderer.reset();
-		GL33.glBindSampler(0, 0);
-		RenderSystem.disableBlend();
-		GL11.glDisable(GL11.GL_BLEND);
-		RenderSystem.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE);
-		GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE);
-		RenderSystem.blendEquation(GL33.GL_FUNC_ADD);
-		GL33.glBlendEquation(GL33.GL_FUNC_ADD);
-		RenderSystem.colorMask(true, true, true, true);
-		GL11.glColorMask(true, true, true, true);
-		RenderSystem.depthMask(true);
-		GL11.glDepthMask(true);
-		RenderSystem.disableScissor();
-		GL11.glDisable(GL11.GL_SCISSOR_TEST);
-		GL11.glDisable(GL11.GL_STENCIL_TEST);
-		RenderSystem.disableDepthTest();
-		GL11.glDisable(GL11.GL_DEPTH_TEST);
-		GL13.glActiveTexture(GL13.GL_TEXTURE0);
-		RenderSystem.activeTexture(GL13.GL_TEXTURE0);
-		RenderSystem.disableCull();
+	/**
+	 * Returns how many times the surface was flushed since startup.
+	 *
+	 * @return the number of flushes
+	 */
+	public static long getTotalFlushes() {
+		return totalFlushes;
 	}
 
+	/**
+	 * Returns the GPU context of the backend.
+	 *
+	 * @return the context, or {@code null} when drawing on the CPU
+	 */
 	public static DirectContext getContext() {
-		return context;
+		return backend.getContext();
 	}
 }
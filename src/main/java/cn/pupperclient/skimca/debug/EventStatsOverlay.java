@@ -0,0 +1,153 @@
+package cn.pupperclient.skimca.debug;
+
+import cn.pupperclient.skimca.Skimca;
+import cn.pupperclient.skimca.event.HandlerStats;
+import cn.pupperclient.skimca.event.SkimcaEventManager;
+import cn.pupperclient.skimca.font.FontHelper;
+import cn.pupperclient.skimca.utils.ColorUtils;
+import io.github.humbleui.skija.Font;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A debug overlay listing the slowest event handlers. <br/>
+ * Shows invocation count, mean, 99th percentile and maximum dispatch time per handler,
+ * sorted by the 99th percentile. Showing the overlay enables profiling on the event manager.
+ * It can also be shown from startup with {@code -Dskimca.debug.eventStats=true}.
+ */
+public final class EventStatsOverlay {
+
+    private static final int MAX_ROWS = 12;
+    private static final long REFRESH_NANOS = 500_000_000L;
+
+    private static final float FONT_SIZE = 7;
+    private static final float LINE_HEIGHT = 9;
+    private static final float PADDING = 4;
+    private static final float NAME_WIDTH = 180;
+    private static final float WIDTH = NAME_WIDTH + 170;
+
+    private static final int BACKGROUND_COLOR = ColorUtils.argb(160, 0, 0, 0);
+    private static final int HEADER_COLOR = ColorUtils.rgb(255, 200, 80);
+    private static final int TEXT_COLOR = ColorUtils.rgb(230, 230, 230);
+
+    private static final Comparator<HandlerStats> SLOWEST_FIRST =
+            Comparator.comparingLong((HandlerStats stats) -> stats.getPercentileNanos(0.99))
+                    .thenComparingLong(HandlerStats::getMaxNanos)
+                    .reversed();
+
+    private static volatile boolean visible = Boolean.getBoolean("skimca.debug.eventStats");
+
+    /** The rows being shown, rebuilt a few times per second so they stay readable. */
+    private static String[][] rows = new String[0][];
+    private static long lastRefresh;
+
+    static {
+        if (visible) {
+            SkimcaEventManager.getInstance().setProfiling(true);
+        }
+    }
+
+    private EventStatsOverlay() {
+    }
+
+    /**
+     * Shows or hides the overlay. Showing it enables profiling; hiding it leaves profiling as is.
+     *
+     * @param visible whether to show the overlay
+     */
+    public static void setVisible(boolean visible) {
+        EventStatsOverlay.visible = visible;
+
+        if (visible) {
+            SkimcaEventManager.getInstance().setProfiling(true);
+        }
+    }
+
+    public static boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Draws the overlay in the top left corner if it is visible.
+     * Must be called on the render thread while a Skia frame is being drawn.
+     */
+    public static void render() {
+        if (visible) {
+            draw(PADDING, PADDING);
+        }
+    }
+
+    /**
+     * Draws the overlay at the given position.
+     * Must be called on the render thread while a Skia frame is being drawn.
+     *
+     * @param x the left edge of the overlay
+     * @param y the top edge of the overlay
+     */
+    public static void draw(float x, float y) {
+        long now = System.nanoTime();
+        if (now - lastRefresh >= REFRESH_NANOS) {
+            rows = buildRows();
+            lastRefresh = now;
+        }
+
+        Font font = FontHelper.loadFallback(FONT_SIZE);
+        float height = PADDING * 2 + LINE_HEIGHT * (rows.length + 1);
+
+        Skimca.drawRoundedRect(x, y, WIDTH, height, 3, BACKGROUND_COLOR);
+
+        float lineY = y + PADDING;
+        drawRow(new String[] { "Handler", "Calls", "Mean", "P99", "Max" }, x + PADDING, lineY, HEADER_COLOR, font);
+
+        for (String[] row : rows) {
+            lineY += LINE_HEIGHT;
+            drawRow(row, x + PADDING, lineY, TEXT_COLOR, font);
+        }
+    }
+
+    private static void drawRow(String[] row, float x, float y, int color, Font font) {
+        Skimca.drawText(Skimca.getLimitText(row[0], font, NAME_WIDTH - PADDING), x, y, color, font);
+
+        float columnX = x + NAME_WIDTH;
+        for (int i = 1; i < row.length; i++) {
+            Skimca.drawText(row[i], columnX, y, color, font);
+            columnX += 40;
+        }
+    }
+
+    private static String[][] buildRows() {
+        List<HandlerStats> stats = SkimcaEventManager.getInstance().getHandlerStats();
+        stats.removeIf(handler -> handler.getInvocations() == 0);
+        stats.sort(SLOWEST_FIRST);
+
+        int count = Math.min(MAX_ROWS, stats.size());
+        String[][] built = new String[count][];
+
+        for (int i = 0; i < count; i++) {
+            HandlerStats handler = stats.get(i);
+            built[i] = new String[] {
+                    shortName(handler.getName()),
+                    Long.toString(handler.getInvocations()),
+                    formatMillis(handler.getMeanNanos()),
+                    formatMillis(handler.getPercentileNanos(0.99)),
+                    formatMillis(handler.getMaxNanos())
+            };
+        }
+
+        return built;
+    }
+
+    /**
+     * Strips the package from a {@code <class>#<method>} handler name.
+     */
+    private static String shortName(String name) {
+        int method = name.indexOf('#');
+        int dot = name.lastIndexOf('.', method < 0 ? name.length() : method);
+        return dot < 0 ? name : name.substring(dot + 1);
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.2fms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,174 @@
+package cn.pupperclient.skimca.debug;
+
+import cn.pupperclient.skimca.Skimca;
+import cn.pupperclient.skimca.context.FrameProfiler;
+import cn.pupperclient.skimca.font.FontHelper;
+import cn.pupperclient.skimca.utils.ColorUtils;
+import io.github.humbleui.skija.Font;
+
+/**
+ * A debug overlay graphing the {@link FrameProfiler} samples of recent frames. <br/>
+ * Each frame is a bar stacking its CPU phases; the GPU time is drawn as a line on top.
+ * The graph scales to the slowest frame shown, but never below a 60 FPS frame.
+ * Showing the overlay enables the profiler. It can also be shown from startup with
+ * {@code -Dskimca.debug.frameProfiler=true}.
+ */
+public final class FrameProfilerOverlay {
+
+    private static final int FRAMES = 120;
+    private static final int AVERAGE_FRAMES = 60;
+    private static final long MIN_SCALE_NANOS = 16_666_667L;
+
+    private static final float BAR_WIDTH = 2;
+    private static final float GRAPH_HEIGHT = 50;
+    private static final float PADDING = 4;
+    private static final float TEXT_HEIGHT = 10;
+    private static final float WIDTH = FRAMES * BAR_WIDTH + PADDING * 2;
+    private static final float HEIGHT = GRAPH_HEIGHT + TEXT_HEIGHT + PADDING * 3;
+
+    private static final int BACKGROUND_COLOR = ColorUtils.argb(160, 0, 0, 0);
+    private static final int GUIDE_COLOR = ColorUtils.argb(80, 255, 255, 255);
+    private static final int GPU_COLOR = ColorUtils.rgb(90, 220, 120);
+    private static final int TEXT_COLOR = ColorUtils.rgb(230, 230, 230);
+    private static final int[] PHASE_COLORS = {
+            ColorUtils.rgb(80, 150, 255),
+            ColorUtils.rgb(255, 170, 60),
+            ColorUtils.rgb(190, 110, 255)
+    };
+
+    private static volatile boolean visible = Boolean.getBoolean("skimca.debug.frameProfiler");
+
+    static {
+        if (visible) {
+            FrameProfiler.setEnabled(true);
+        }
+    }
+
+    private FrameProfilerOverlay() {
+    }
+
+    /**
+     * Shows or hides the overlay. Showing it enables the profiler; hiding it leaves the profiler as is.
+     *
+     * @param visible whether to show the overlay
+     */
+    public static void setVisible(boolean visible) {
+        FrameProfilerOverlay.visible = visible;
+
+        if (visible) {
+            FrameProfiler.setEnabled(true);
+        }
+    }
+
+    public static boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Draws the overlay in the bottom left corner of the given area if it is visible.
+     * Must be called on the render thread while a Skia frame is being drawn.
+     *
+     * @param areaHeight the height of the area the overlay is placed in
+     */
+    public static void render(float areaHeight) {
+        if (visible) {
+            draw(PADDING, areaHeight - HEIGHT - PADDING);
+        }
+    }
+
+    /**
+     * Draws the overlay at the given position.
+     * Must be called on the render thread while a Skia frame is being drawn.
+     *
+     * @param x the left edge of the overlay
+     * @param y the top edge of the overlay
+     */
+    public static void draw(float x, float y) {
+        int samples = Math.min(FRAMES, FrameProfiler.getSampleCount());
+        FrameProfiler.Phase[] phases = FrameProfiler.Phase.values();
+
+        long scale = MIN_SCALE_NANOS;
+        for (int age = 0; age < samples; age++) {
+            scale = Math.max(scale, Math.max(FrameProfiler.getCpuNanos(age), FrameProfiler.getGpuNanos(age)));
+        }
+
+        Skimca.drawRoundedRect(x, y, WIDTH, HEIGHT, 3, BACKGROUND_COLOR);
+
+        float left = x + PADDING;
+        float bottom = y + PADDING + GRAPH_HEIGHT;
+        float pixelsPerNano = GRAPH_HEIGHT / scale;
+
+        // 60 FPS guide
+        float guideY = bottom - MIN_SCALE_NANOS * pixelsPerNano;
+        Skimca.drawLine(left, guideY, left + FRAMES * BAR_WIDTH, guideY, 0.5f, GUIDE_COLOR);
+
+        float previousGpuX = -1;
+        float previousGpuY = 0;
+
+        // Oldest frame on the left, newest on the right
+        for (int age = samples - 1; age >= 0; age--) {
+            float barX = left + (FRAMES - 1 - age) * BAR_WIDTH;
+            float barBottom = bottom;
+
+            for (int i = 0; i < phases.length; i++) {
+                float barHeight = FrameProfiler.getCpuNanos(phases[i], age) * pixelsPerNano;
+                if (barHeight > 0) {
+                    Skimca.drawRect(barX, barBottom - barHeight, BAR_WIDTH, barHeight, PHASE_COLORS[i]);
+                    barBottom -= barHeight;
+                }
+            }
+
+            long gpu = FrameProfiler.getGpuNanos(age);
+            if (gpu >= 0) {
+                float gpuX = barX + BAR_WIDTH / 2;
+                float gpuY = bottom - gpu * pixelsPerNano;
+                if (previousGpuX >= 0) {
+                    Skimca.drawLine(previousGpuX, previousGpuY, gpuX, gpuY, 1, GPU_COLOR);
+                }
+                previousGpuX = gpuX;
+                previousGpuY = gpuY;
+            } else {
+                previousGpuX = -1;
+            }
+        }
+
+        Font font = FontHelper.loadFallback(7);
+        Skimca.drawText(summary(phases), left, bottom + PADDING, TEXT_COLOR, font);
+    }
+
+    /**
+     * Averages each phase and the GPU time over the most recent frames.
+     */
+    private static String summary(FrameProfiler.Phase[] phases) {
+        int samples = Math.min(AVERAGE_FRAMES, FrameProfiler.getSampleCount());
+        if (samples == 0) {
+            return "No frames profiled";
+        }
+
+        StringBuilder text = new StringBuilder();
+        for (FrameProfiler.Phase phase : phases) {
+            long total = 0;
+            for (int age = 0; age < samples; age++) {
+                total += FrameProfiler.getCpuNanos(phase, age);
+            }
+            text.append(phase.name().toLowerCase()).append(' ').append(formatMillis(total / samples)).append("  ");
+        }
+
+        long gpuTotal = 0;
+        int gpuSamples = 0;
+        for (int age = 0; age < samples; age++) {
+            long gpu = FrameProfiler.getGpuNanos(age);
+            if (gpu >= 0) {
+                gpuTotal += gpu;
+                gpuSamples++;
+            }
+        }
+        text.append("gpu ").append(gpuSamples > 0 ? formatMillis(gpuTotal / gpuSamples) : "-");
+
+        return text.toString();
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.2fms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,184 @@
+package cn.pupperclient.skimca.event;
+
+import cn.pupperclient.skimca.SkimcaLogger;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The bounded event queue of one asynchronous handler. <br/>
+ * At most one drain task per channel runs on the executor at a time, so the handler sees
+ * events one by one and in submission order, while different handlers run in parallel.
+ * What happens when the queue is full is decided by the handler's {@link EventTarget.Backpressure}.
+ */
+final class AsyncChannel {
+
+    /** How long a {@link EventTarget.Backpressure#BLOCK} caller waits for room before dropping the event. */
+    private static final long BLOCK_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /** The channel the current thread is draining, if any. */
+    private static final ThreadLocal<AsyncChannel> DRAINING = new ThreadLocal<>();
+
+    private final String name;
+    private final EventListener listener;
+    private final EventTarget.Backpressure backpressure;
+    private final int capacity;
+    private final Executor executor;
+
+    private final ArrayDeque<Event> queue = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+
+    /** Whether a drain task has been submitted and not yet finished. */
+    private boolean scheduled;
+    private boolean closed;
+    private long dropped;
+
+    AsyncChannel(String name, EventListener listener, EventTarget.Backpressure backpressure, int capacity,
+                 Executor executor) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Queue capacity of " + name + " must be at least 1: " + capacity);
+        }
+
+        this.name = name;
+        this.listener = listener;
+        this.backpressure = backpressure;
+        this.capacity = capacity;
+        this.executor = executor;
+    }
+
+    /**
+     * Queues an event for the handler, applying the back-pressure policy if the queue is full.
+     *
+     * @param event the event to deliver
+     * @return {@code true} if the event was queued
+     */
+    boolean submit(Event event) {
+        boolean schedule = false;
+
+        lock.lock();
+        try {
+            long remaining = BLOCK_TIMEOUT_NANOS;
+
+            while (!closed && queue.size() >= capacity) {
+                if (backpressure == EventTarget.Backpressure.DROP_OLDEST) {
+                    queue.pollFirst();
+                    dropped++;
+                } else if (backpressure == EventTarget.Backpressure.DROP || remaining <= 0
+                        || DRAINING.get() == this) {
+                    // Waiting on the drain thread would deadlock: only it can make room
+                    dropped++;
+                    return false;
+                } else {
+                    try {
+                        remaining = notFull.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        dropped++;
+                        return false;
+                    }
+                }
+            }
+
+            if (closed) {
+                return false;
+            }
+
+            queue.addLast(event);
+            if (!scheduled) {
+                scheduled = true;
+                schedule = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (schedule) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                SkimcaLogger.error("EventManager", "Async executor rejected handler " + name, e);
+                lock.lock();
+                try {
+                    scheduled = false;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Discards all queued events and releases callers blocked on a full queue.
+     * Events submitted afterwards are ignored.
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            queue.clear();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getQueued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain() {
+        DRAINING.set(this);
+        try {
+            drainQueue();
+        } finally {
+            DRAINING.remove();
+        }
+    }
+
+    private void drainQueue() {
+        while (true) {
+            Event event;
+
+            lock.lock();
+            try {
+                event = queue.pollFirst();
+                if (event == null) {
+                    scheduled = false;
+                    return;
+                }
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                listener.invoke(event);
+            } catch (Exception e) {
+                SkimcaLogger.error("EventManager",
+                        "Error invoking async event handler " + name +
+                                " for event " + event.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package cn.pupperclient.skimca.event;
+
+/**
+ * A compile-time index of the {@code @EventTarget} handlers of one class. <br/>
+ * Implementations are generated by the {@code skimca} annotation processor and listed in
+ * {@code META-INF/services}, so handlers can be registered without scanning the classpath
+ * or reflecting over methods. See {@link SkimcaEventManager#registerIndexed(ClassLoader)}.
+ */
+public interface EventHandlerIndex {
+
+    /**
+     * Returns the class whose handlers this index describes.
+     *
+     * @return the handler class
+     */
+    Class<?> handlerClass();
+
+    /**
+     * Creates an instance of the handler class with its no-arg constructor.
+     *
+     * @return a new instance, or {@code null} if the class cannot be instantiated directly
+     */
+    Object newInstance();
+
+    /**
+     * Registers every indexed handler of the given instance.
+     *
+     * @param manager  the manager to register with
+     * @param instance an instance of {@link #handlerClass()}
+     */
+    void register(SkimcaEventManager manager, Object instance);
+}
@@ -0,0 +1,105 @@
+package cn.pupperclient.skimca.event;
+
+import cn.pupperclient.skimca.SkimcaLogger;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Builds {@link EventListener}s for {@code @EventTarget} methods. <br/>
+ * Listeners are spun with {@link LambdaMetafactory}, which defines a hidden class calling
+ * the handler directly; the JIT can then inline it like any other monomorphic call.
+ * Handlers taking an interface cannot be spun that way, since an interface is not a subtype of
+ * {@link Event}; they get a method handle adapted to {@code (Event)void} instead.
+ * If that fails (e.g. the handler's class cannot be accessed), a reflective listener is used.
+ */
+final class EventInvokers {
+
+    /** The erased signature of {@link EventListener#invoke}. */
+    private static final MethodType LISTENER_TYPE = MethodType.methodType(void.class, Event.class);
+
+    private EventInvokers() {
+    }
+
+    /**
+     * Creates a listener calling {@code method} on {@code instance}.
+     *
+     * @param method   the handler method, taking a single event parameter
+     * @param instance the object owning the method, ignored for static methods
+     * @return the compiled listener, or a reflective one if compilation failed
+     */
+    static EventListener create(Method method, Object instance) {
+        try {
+            return compile(method, instance);
+        } catch (Throwable t) {
+            SkimcaLogger.warn("EventManager", "Falling back to reflective dispatch for "
+                    + method.getDeclaringClass().getName() + "#" + method.getName() + ": " + t);
+            return reflective(method, instance);
+        }
+    }
+
+    private static EventListener compile(Method method, Object instance) throws Throwable {
+        Class<?> owner = method.getDeclaringClass();
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+        MethodHandle target = lookup.unreflect(method);
+
+        if (!Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+            // LambdaMetafactory only narrows the parameter to a subtype of Event; asType inserts the cast
+            MethodHandle bound = isStatic ? target : target.bindTo(instance);
+            return new HandleListener(bound.asType(LISTENER_TYPE));
+        }
+
+        MethodType factoryType = isStatic
+                ? MethodType.methodType(EventListener.class)
+                : MethodType.methodType(EventListener.class, owner);
+
+        CallSite site = LambdaMetafactory.metafactory(lookup, "invoke", factoryType, LISTENER_TYPE, target,
+                MethodType.methodType(void.class, method.getParameterTypes()[0]));
+
+        return isStatic
+                ? (EventListener) site.getTarget().invoke()
+                : (EventListener) site.getTarget().invoke(instance);
+    }
+
+    /**
+     * Calls a handler through a method handle of type {@code (Event)void}.
+     */
+    private record HandleListener(MethodHandle handle) implements EventListener {
+
+        @Override
+        public void invoke(Event event) {
+            try {
+                handle.invokeExact(event);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+
+    private static EventListener reflective(Method method, Object instance) {
+        method.setAccessible(true);
+
+        return event -> {
+            try {
+                method.invoke(instance, event);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+}
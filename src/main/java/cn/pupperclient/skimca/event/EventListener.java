@@ -0,0 +1,16 @@
+package cn.pupperclient.skimca.event;
+
+/**
+ * A compiled event handler. <br/>
+ * Instances are generated at registration time for each {@code @EventTarget} method,
+ * so dispatching an event is a plain interface call instead of a reflective one.
+ */
+@FunctionalInterface
+public interface EventListener {
+    /**
+     * Handles the given event.
+     *
+     * @param event the event being dispatched
+     */
+    void invoke(Event event);
+}
@@ -21,6 +21,30 @@ public @interface EventTarget {
      */
     boolean ignoreCancelled() default false;
 
+    /**
+     * Whether this handler runs on a background thread instead of the thread calling the event. <br/>
+     * Events are delivered to an asynchronous handler one at a time, in the order they were called.
+     * Such handlers should only read the event: they run after the dispatch has returned, so they
+     * cannot cancel it. Handlers of {@link RenderThreadEvent}s always run synchronously.
+     *
+     * @return {@code true} if the handler should run asynchronously
+     */
+    boolean async() default false;
+
+    /**
+     * What an asynchronous handler does when its queue is full. Ignored for synchronous handlers.
+     *
+     * @return the back-pressure policy
+     */
+    Backpressure backpressure() default Backpressure.DROP;
+
+    /**
+     * The maximum number of events queued for an asynchronous handler. Ignored for synchronous handlers.
+     *
+     * @return the queue capacity, at least 1
+     */
+    int queueCapacity() default 256;
+
     enum Priority {
         /** Lowest priority, executed last. */
         LOWEST,
@@ -35,4 +59,17 @@ public @interface EventTarget {
         /** Used for monitoring purposes only, should not modify events. */
         MONITOR
     }
+
+    enum Backpressure {
+        /** Discard the new event, the caller never waits. */
+        DROP,
+        /** Discard the oldest queued event, so the handler always sees the most recent events. */
+        DROP_OLDEST,
+        /**
+         * Make the caller wait until the handler has caught up, for at most 100 ms, then drop the event.
+         * An event the handler itself posts to its own full queue is dropped right away, since the
+         * handler is the only one that could make room.
+         */
+        BLOCK
+    }
 }
@@ -0,0 +1,191 @@
+package cn.pupperclient.skimca.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dispatch timings of one event handler, recorded while profiling is enabled on
+ * {@link SkimcaEventManager}. <br/>
+ * Recording never allocates or locks: counters are {@link LongAdder}s, the maximum is
+ * updated by compare-and-set, and durations are counted in power-of-two nanosecond buckets.
+ * The buckets are kept per one-second window in a small ring, so percentiles describe the
+ * last few seconds rather than the whole session. Percentiles are therefore upper bounds,
+ * accurate to a factor of two.
+ */
+public final class HandlerStats {
+
+    /** Bucket {@code i} counts durations in {@code [2^i, 2^(i+1))} ns; the last one is open-ended. */
+    private static final int BUCKETS = 40;
+
+    /** Number of windows in the ring; percentiles cover this many seconds. */
+    private static final int WINDOWS = 4;
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private final String name;
+    private final Class<?> eventType;
+
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /** {@link #WINDOWS} histograms of {@link #BUCKETS} counters, laid out back to back. */
+    private final AtomicLongArray buckets = new AtomicLongArray(WINDOWS * BUCKETS);
+
+    /** The window number each histogram currently holds. */
+    private final AtomicLongArray windows = new AtomicLongArray(WINDOWS);
+
+    /** When this handler was last reported as slow, to rate-limit the warnings. */
+    private final AtomicLong lastSlowReport = new AtomicLong(Long.MIN_VALUE);
+
+    HandlerStats(String name, Class<?> eventType) {
+        this.name = name;
+        this.eventType = eventType;
+
+        for (int i = 0; i < WINDOWS; i++) {
+            windows.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Records one invocation.
+     *
+     * @param nanos the duration of the invocation
+     * @param now   the current {@link System#nanoTime()}, used to pick the histogram window
+     */
+    void record(long nanos, long now) {
+        invocations.increment();
+        totalNanos.add(nanos);
+
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // Retry until we win or a larger value is stored
+        }
+
+        long window = Math.floorDiv(now, WINDOW_NANOS);
+        int slot = (int) Math.floorMod(window, WINDOWS);
+        long held = windows.get(slot);
+
+        // The first recorder of a new window clears it; concurrent increments during the
+        // clear may be lost, which only costs a few samples once per second
+        if (held != window && windows.compareAndSet(slot, held, window)) {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(slot * BUCKETS + i, 0);
+            }
+        }
+
+        buckets.incrementAndGet(slot * BUCKETS + bucket(nanos));
+    }
+
+    /**
+     * Returns whether a slow invocation should be logged now, allowing at most one report per interval.
+     */
+    boolean shouldReportSlow(long now, long interval) {
+        long last = lastSlowReport.get();
+        return (last == Long.MIN_VALUE || now - last >= interval) && lastSlowReport.compareAndSet(last, now);
+    }
+
+    /**
+     * Returns the name of the handler, {@code <class>#<method>}.
+     *
+     * @return the handler name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the event class or interface the handler accepts.
+     *
+     * @return the event type
+     */
+    public Class<?> getEventType() {
+        return eventType;
+    }
+
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns the mean duration of an invocation since the last reset.
+     *
+     * @return the mean in nanoseconds, or 0 if the handler was never invoked
+     */
+    public long getMeanNanos() {
+        long count = invocations.sum();
+        return count == 0 ? 0 : totalNanos.sum() / count;
+    }
+
+    /**
+     * Returns an upper bound of the given percentile over the last few seconds.
+     *
+     * @param percentile the percentile, between 0 and 1 (e.g. 0.99)
+     * @return the upper bound of the bucket holding the percentile in nanoseconds, capped at
+     *         the maximum, or 0 if the handler was not invoked recently
+     */
+    public long getPercentileNanos(double percentile) {
+        long current = Math.floorDiv(System.nanoTime(), WINDOW_NANOS);
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+
+        for (int slot = 0; slot < WINDOWS; slot++) {
+            if (current - windows.get(slot) >= WINDOWS) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                long count = buckets.get(slot * BUCKETS + i);
+                counts[i] += count;
+                total += count;
+            }
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(1L << (i + 1), Math.max(1, maxNanos.get()));
+            }
+        }
+
+        return maxNanos.get();
+    }
+
+    /**
+     * Clears all counters.
+     */
+    public void reset() {
+        invocations.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+
+        for (int i = 0; i < WINDOWS; i++) {
+            windows.set(i, Long.MIN_VALUE);
+        }
+        for (int i = 0; i < WINDOWS * BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+    }
+
+    private static int bucket(long nanos) {
+        if (nanos <= 1) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos));
+    }
+}
@@ -2,7 +2,7 @@ package cn.pupperclient.skimca.event;
 
 import io.github.humbleui.skija.Canvas;
 
-public class RenderSkiaEvent extends Event {
+public class RenderSkiaEvent extends Event implements RenderThreadEvent {
     private final Canvas canvas;
 
     public RenderSkiaEvent(Canvas canvas) {
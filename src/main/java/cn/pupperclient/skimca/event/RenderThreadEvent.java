@@ -0,0 +1,10 @@
+package cn.pupperclient.skimca.event;
+
+/**
+ * Marks events that must be handled on the thread calling them, usually the render thread. <br/>
+ * Handlers receive such events synchronously even if they are declared with
+ * {@code @EventTarget(async = true)}, since the event may carry state (a canvas, a GL context)
+ * that is only valid during the call.
+ */
+public interface RenderThreadEvent {
+}
@@ -6,18 +6,44 @@ import java.io.File;
 import java.lang.reflect.Method;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /**
  * An enhanced event manager that automatically discovers and registers <br/>
  * classes containing {@code @EventTarget} annotated methods. <br/>
- * Supports both automatic classpath scanning and explicit registration.
+ * Supports both the compile-time handler index generated by the {@code skimca}
+ * annotation processor and explicit registration.
  */
 public class SkimcaEventManager {
 
-    /** Maps event classes to lists of registered handlers, sorted by priority. */
-    private final Map<Class<? extends Event>, List<RegisteredHandler>> handlerMap = new ConcurrentHashMap<>();
+    /**
+     * Maps event types (event classes or interfaces they implement) to the handlers
+     * registered for exactly that type, published as sorted array snapshots.
+     */
+    private final Map<Class<?>, HandlerList> handlerMap = new ConcurrentHashMap<>();
+
+    /**
+     * Maps concrete event classes to the merged handlers of all their supertypes.
+     * Replaced with a fresh map whenever handlers change, so an in-flight resolution
+     * can never store a stale result in the current cache.
+     */
+    private volatile Map<Class<?>, RegisteredHandler[]> dispatchCache = new ConcurrentHashMap<>();
+
+    /** Registration sequence, used to keep registration order among equal priorities. */
+    private long registrationCounter;
+
+    /** Guards handler list mutation; dispatch never takes it. */
+    private final Object registrationLock = new Object();
+
+    /** Event classes whose snapshots must be rebuilt when the current batch ends. */
+    private final Set<HandlerList> dirtyLists = new HashSet<>();
+
+    /** Nesting depth of {@link #batch(Runnable)} calls. */
+    private int batchDepth;
 
     /** Maps method objects to their containing instances for reference. */
     private final Map<Method, Object> methodObjectMap = new ConcurrentHashMap<>();
@@ -25,8 +51,21 @@ public class SkimcaEventManager {
     /** Cache of already registered classes to prevent duplicate registration. */
     private final Set<Class<?>> registeredClasses = ConcurrentHashMap.newKeySet();
 
-    /** Cache of class loaders to registered classes. */
-    private final Map<ClassLoader, Set<Class<?>>> classLoaderRegistry = new ConcurrentHashMap<>();
+    /** Classes registered from each (class loader, package) index lookup; the empty package stands for all. */
+    private final Map<IndexScope, Set<Class<?>>> indexRegistry = new ConcurrentHashMap<>();
+
+    /** Runs the queues of asynchronous handlers; one virtual thread per busy handler by default. */
+    private volatile Executor asyncExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("Skimca-EventHandler-", 0).factory());
+
+    /** Whether dispatch times are recorded into each handler's {@link HandlerStats}. */
+    private volatile boolean profiling = Boolean.getBoolean("skimca.event.profiling");
+
+    /** Handlers slower than this are logged while profiling; 0 disables the warning. */
+    private volatile long slowHandlerThresholdNanos;
+
+    /** Minimum time between two slow-handler warnings for the same handler. */
+    private static final long SLOW_REPORT_INTERVAL = TimeUnit.SECONDS.toNanos(5);
 
     /** Singleton instance. */
     private static final SkimcaEventManager INSTANCE = new SkimcaEventManager();
@@ -76,14 +115,22 @@ public class SkimcaEventManager {
     }
 
     /**
-     * Registers all classes in the specified package that contain {@code @EventTarget} methods.
-     * Note: This uses reflection and may have performance implications.
+     * Registers all classes in the specified package (and its subpackages) that contain
+     * {@code @EventTarget} methods. <br/>
+     * Indexed classes are registered without scanning. Only if the package has no indexed
+     * classes, e.g. because it was compiled without the annotation processor, is its
+     * directory scanned with reflection, which does not work inside jars.
      *
      * @param packageName the package name to scan
      */
     public void registerPackage(String packageName) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        int indexed = registerIndexed(classLoader, packageName);
+        if (indexed > 0) {
+            return;
+        }
+
         try {
-            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
             String path = packageName.replace('.', '/');
             java.net.URL resource = classLoader.getResource(path);
 
@@ -99,28 +146,117 @@ public class SkimcaEventManager {
     }
 
     /**
-     * Automatically registers all classes from the specified class loader
-     * that contain {@code @EventTarget} methods.
+     * Automatically registers the indexed classes of a package and its subpackages
+     * that contain {@code @EventTarget} methods. Does nothing if this package has been
+     * registered from the class loader before. <br/>
+     * The package keeps a class loader shared by several mods, such as Fabric's,
+     * from instantiating the handlers of every mod.
      *
-     * @param classLoader the class loader to scan
+     * @param classLoader the class loader to look up indexes with
+     * @param packageName the package the handler classes must be in
      */
-    public void autoRegisterFromClassLoader(ClassLoader classLoader) {
-        if (classLoaderRegistry.containsKey(classLoader)) {
+    public void autoRegisterFromClassLoader(ClassLoader classLoader, String packageName) {
+        if (indexRegistry.containsKey(new IndexScope(classLoader, packageName))) {
             return; // Already registered from this class loader
         }
 
-        Set<Class<?>> registered = ConcurrentHashMap.newKeySet();
-        classLoaderRegistry.put(classLoader, registered);
-
-        // In a real implementation, you might use a library like Reflections
-        // or ClassGraph for classpath scanning. This is a simplified version.
+        int count = registerIndexed(classLoader, packageName);
         SkimcaLogger.info("EventManager",
-                "Auto-registration from class loader: " + classLoader);
+                "Auto-registered " + count + " indexed classes of " + packageName + " from class loader: " + classLoader);
+    }
+
+    /**
+     * Registers every class listed in the compile-time handler indexes visible to the
+     * class loader, as one batch. <br/>
+     * The indexes are generated by the {@code skimca} annotation processor and found
+     * through {@link ServiceLoader}, so no classpath scanning or reflection is involved.
+     * Classes that are already registered are skipped.
+     *
+     * @param classLoader the class loader to look up indexes with
+     * @return the number of classes registered
+     */
+    public int registerIndexed(ClassLoader classLoader) {
+        return registerIndexed(new IndexScope(classLoader, ""), type -> true);
+    }
+
+    /**
+     * Registers the indexed classes of a package and its subpackages, as one batch. <br/>
+     * Use this on a class loader shared by several mods, such as Fabric's, to only
+     * instantiate the handlers of your own mod.
+     *
+     * @param classLoader the class loader to look up indexes with
+     * @param packageName the package the handler classes must be in
+     * @return the number of classes registered
+     */
+    public int registerIndexed(ClassLoader classLoader, String packageName) {
+        String prefix = packageName + ".";
+        return registerIndexed(new IndexScope(classLoader, packageName),
+                type -> type.getPackageName().equals(packageName) || type.getPackageName().startsWith(prefix));
+    }
+
+    /**
+     * Registers a single handler, typically from generated index code. <br/>
+     * The listener is called directly, so no {@link Method} is involved;
+     * {@code name} identifies the handler in logs.
+     *
+     * @param instance        the object owning the handler
+     * @param eventType       the event class or interface the handler accepts
+     * @param name            a human-readable name for the handler
+     * @param listener        the listener invoking the handler
+     * @param priority        the handler priority
+     * @param ignoreCancelled whether the handler receives cancelled events
+     */
+    public void registerListener(Object instance, Class<?> eventType, String name, EventListener listener,
+                                 EventTarget.Priority priority, boolean ignoreCancelled) {
+        registerListener(instance, eventType, name, listener, priority, ignoreCancelled,
+                false, EventTarget.Backpressure.DROP, 0);
+    }
+
+    /**
+     * Registers a single handler, optionally running on the async executor.
+     * The arguments mirror the attributes of {@link EventTarget}.
+     *
+     * @param instance        the object owning the handler
+     * @param eventType       the event class or interface the handler accepts
+     * @param name            a human-readable name for the handler
+     * @param listener        the listener invoking the handler
+     * @param priority        the handler priority
+     * @param ignoreCancelled whether the handler receives cancelled events
+     * @param async           whether the handler runs on the async executor
+     * @param backpressure    what to do when the handler's queue is full
+     * @param queueCapacity   the maximum number of events queued for the handler
+     */
+    public void registerListener(Object instance, Class<?> eventType, String name, EventListener listener,
+                                 EventTarget.Priority priority, boolean ignoreCancelled, boolean async,
+                                 EventTarget.Backpressure backpressure, int queueCapacity) {
+        synchronized (registrationLock) {
+            AsyncChannel channel = async ? createChannel(name, eventType, listener, backpressure, queueCapacity) : null;
+            addHandler(eventType, new RegisteredHandler(null, name, instance, listener, priority,
+                    ignoreCancelled, registrationCounter++, channel, new HandlerStats(name, eventType)));
+            publishIfNotBatching();
+        }
+    }
+
+    /**
+     * Sets the executor running asynchronous handlers. Each handler submits at most one task
+     * at a time, so a bounded pool caps the number of handlers running in parallel.
+     * Defaults to a virtual thread per busy handler.
+     *
+     * @param executor the executor for asynchronous handlers
+     */
+    public void setAsyncExecutor(Executor executor) {
+        this.asyncExecutor = Objects.requireNonNull(executor, "executor");
     }
 
     /**
      * Dispatches an event to all registered handlers.
-     * Handlers are executed in order of priority (highest to lowest).
+     * Handlers are executed in order of priority (highest to lowest). <br/>
+     * Handlers registered for a superclass or an interface of the event receive it too.
+     * The merged handler array is resolved once per concrete event class and cached. <br/>
+     * Each handler is called through an {@link EventListener} compiled at registration time,
+     * so no reflection happens here. <br/>
+     * Asynchronous handlers only get the event queued; they run later on the async executor,
+     * unless the event is a {@link RenderThreadEvent}.
      *
      * @param event the event to dispatch
      */
@@ -131,31 +267,102 @@ public class SkimcaEventManager {
         }
 
         Class<? extends Event> eventClass = event.getClass();
-        List<RegisteredHandler> handlers = handlerMap.get(eventClass);
+        Map<Class<?>, RegisteredHandler[]> cache = dispatchCache;
+        RegisteredHandler[] handlers = cache.get(eventClass);
 
-        if (handlers == null || handlers.isEmpty()) {
-            return;
+        if (handlers == null) {
+            handlers = resolveHandlers(eventClass);
+            cache.put(eventClass, handlers);
         }
 
+        // Resolved arrays are immutable, so iterating one needs no lock and no iterator
         boolean wasCancelled = event.isCancelled();
+        boolean profile = profiling;
+
+        for (int i = 0; i < handlers.length; i++) {
+            RegisteredHandler handler = handlers[i];
 
-        for (RegisteredHandler handler : handlers) {
             // Skip if handler ignores canceled events and event is already canceled
             if (!handler.ignoreCancelled && wasCancelled && event.isCancelled()) {
                 continue;
             }
 
+            long start = profile ? System.nanoTime() : 0L;
+
             try {
-                handler.method.invoke(handler.instance, event);
+                if (handler.channel != null && !(event instanceof RenderThreadEvent)) {
+                    handler.channel.submit(event);
+                } else {
+                    handler.listener.invoke(event);
+                }
             } catch (Exception e) {
                 SkimcaLogger.error("EventManager",
-                        "Error invoking event handler " + handler.method.getName() +
+                        "Error invoking event handler " + handler.name +
                                 " for event " + eventClass.getSimpleName(), e);
             }
+
+            if (profile) {
+                recordTiming(handler, eventClass, start);
+            }
         }
 
     }
 
+    /**
+     * Enables or disables recording of per-handler dispatch times. Disabled by default,
+     * or enabled at startup with {@code -Dskimca.event.profiling=true}. <br/>
+     * For asynchronous handlers only the time spent queueing the event is recorded,
+     * since that is what the caller pays.
+     *
+     * @param profiling whether to record dispatch times
+     */
+    public void setProfiling(boolean profiling) {
+        this.profiling = profiling;
+    }
+
+    public boolean isProfiling() {
+        return profiling;
+    }
+
+    /**
+     * Sets the dispatch time above which a handler is logged as slow while profiling.
+     * Each handler is reported at most once every few seconds.
+     *
+     * @param millis the threshold in milliseconds, or 0 to disable the warning
+     */
+    public void setSlowHandlerThreshold(double millis) {
+        this.slowHandlerThresholdNanos = (long) (millis * 1_000_000);
+    }
+
+    public double getSlowHandlerThreshold() {
+        return slowHandlerThresholdNanos / 1_000_000.0;
+    }
+
+    /**
+     * Returns the dispatch statistics of every registered handler.
+     * Statistics are only recorded while profiling is enabled.
+     *
+     * @return a new list with one entry per handler
+     */
+    public List<HandlerStats> getHandlerStats() {
+        List<HandlerStats> stats = new ArrayList<>();
+        for (HandlerList handlerList : handlerMap.values()) {
+            for (RegisteredHandler handler : handlerList.snapshot) {
+                stats.add(handler.stats);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Clears the dispatch statistics of every registered handler.
+     */
+    public void resetHandlerStats() {
+        for (HandlerStats stats : getHandlerStats()) {
+            stats.reset();
+        }
+    }
+
     /**
      * Unregisters all event handlers from the specified object.
      *
@@ -167,21 +374,30 @@ public class SkimcaEventManager {
         Class<?> clazz = obj.getClass();
         int removedCount = 0;
 
-        // Remove from handler map
-        for (List<RegisteredHandler> handlers : handlerMap.values()) {
-            Iterator<RegisteredHandler> iterator = handlers.iterator();
-            while (iterator.hasNext()) {
-                RegisteredHandler handler = iterator.next();
-                if (handler.instance == obj) {
-                    iterator.remove();
-                    methodObjectMap.remove(handler.method);
-                    removedCount++;
+        synchronized (registrationLock) {
+            // Remove from handler map
+            for (HandlerList handlerList : handlerMap.values()) {
+                Iterator<RegisteredHandler> iterator = handlerList.handlers.iterator();
+                while (iterator.hasNext()) {
+                    RegisteredHandler handler = iterator.next();
+                    if (handler.instance == obj) {
+                        iterator.remove();
+                        if (handler.method != null) {
+                            methodObjectMap.remove(handler.method);
+                        }
+                        if (handler.channel != null) {
+                            handler.channel.close();
+                        }
+                        dirtyLists.add(handlerList);
+                        removedCount++;
+                    }
                 }
             }
-        }
 
-        // Remove from registered classes
-        registeredClasses.remove(clazz);
+            // Remove from registered classes
+            registeredClasses.remove(clazz);
+            publishIfNotBatching();
+        }
 
         if (removedCount > 0) {
             SkimcaLogger.info("EventManager",
@@ -193,10 +409,21 @@ public class SkimcaEventManager {
      * Clears all registered event handlers.
      */
     public void clear() {
-        handlerMap.clear();
+        synchronized (registrationLock) {
+            for (HandlerList handlerList : handlerMap.values()) {
+                for (RegisteredHandler handler : handlerList.handlers) {
+                    if (handler.channel != null) {
+                        handler.channel.close();
+                    }
+                }
+            }
+            handlerMap.clear();
+            dirtyLists.clear();
+            dispatchCache = new ConcurrentHashMap<>();
+        }
         methodObjectMap.clear();
         registeredClasses.clear();
-        classLoaderRegistry.clear();
+        indexRegistry.clear();
         SkimcaLogger.info("EventManager", "Cleared all event handlers");
     }
 
@@ -206,9 +433,9 @@ public class SkimcaEventManager {
      * @param eventClass the event class
      * @return the number of registered handlers
      */
-    public int getHandlerCount(Class<? extends Event> eventClass) {
-        List<RegisteredHandler> handlers = handlerMap.get(eventClass);
-        return handlers != null ? handlers.size() : 0;
+    public int getHandlerCount(Class<?> eventClass) {
+        HandlerList handlerList = handlerMap.get(eventClass);
+        return handlerList != null ? handlerList.snapshot.length : 0;
     }
 
     /**
@@ -220,10 +447,217 @@ public class SkimcaEventManager {
         return registeredClasses.size();
     }
 
+    /**
+     * Runs a group of registrations as one batch. Handler snapshots are rebuilt and
+     * published once when the outermost batch ends, instead of after every registration.
+     *
+     * @param registrations the code performing the registrations
+     */
+    public void batch(Runnable registrations) {
+        synchronized (registrationLock) {
+            batchDepth++;
+            try {
+                registrations.run();
+            } finally {
+                batchDepth--;
+                publishIfNotBatching();
+            }
+        }
+    }
+
+    /**
+     * Registers several objects or classes as one batch.
+     * {@link Class} elements are registered with {@link #register(Class)},
+     * anything else with {@link #register(Object)}.
+     *
+     * @param handlers the objects or classes to register
+     */
+    public void registerAll(Iterable<?> handlers) {
+        batch(() -> {
+            for (Object handler : handlers) {
+                if (handler instanceof Class<?> clazz) {
+                    register(clazz);
+                } else {
+                    register(handler);
+                }
+            }
+        });
+    }
+
+    /**
+     * Rebuilds the snapshot of every handler list changed since the last publish,
+     * unless a batch is still open. Must hold {@link #registrationLock}.
+     */
+    private void publishIfNotBatching() {
+        if (batchDepth > 0) {
+            return;
+        }
+
+        if (dirtyLists.isEmpty()) {
+            return;
+        }
+
+        for (HandlerList handlerList : dirtyLists) {
+            handlerList.publish();
+        }
+        dirtyLists.clear();
+
+        // Snapshots first, then the cache, so a new cache only ever sees new snapshots
+        dispatchCache = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Registers the indexed classes accepted by the filter. The filter sees the generated
+     * index class, which lives in the same package as the handler class it describes.
+     */
+    private int registerIndexed(IndexScope scope, Predicate<Class<?>> filter) {
+        ClassLoader classLoader = scope.classLoader();
+        Set<Class<?>> registered = indexRegistry.computeIfAbsent(scope,
+                k -> ConcurrentHashMap.newKeySet());
+        int[] count = new int[1];
+
+        batch(() -> {
+            Iterator<ServiceLoader.Provider<EventHandlerIndex>> providers =
+                    ServiceLoader.load(EventHandlerIndex.class, classLoader).stream().iterator();
+
+            while (true) {
+                EventHandlerIndex index;
+                try {
+                    if (!providers.hasNext()) {
+                        break;
+                    }
+                    ServiceLoader.Provider<EventHandlerIndex> provider = providers.next();
+                    if (!filter.test(provider.type())) {
+                        continue;
+                    }
+                    index = provider.get();
+                } catch (ServiceConfigurationError e) {
+                    SkimcaLogger.error("EventManager", "Failed to load event handler index", e);
+                    continue;
+                }
+
+                Class<?> clazz = index.handlerClass();
+                if (registeredClasses.contains(clazz)) {
+                    continue;
+                }
+
+                Object instance = index.newInstance();
+                if (instance == null) {
+                    SkimcaLogger.warn("EventManager", "Indexed class " + clazz.getName()
+                            + " has no accessible no-arg constructor, register an instance explicitly");
+                    continue;
+                }
+
+                try {
+                    index.register(this, instance);
+                    registeredClasses.add(clazz);
+                    registered.add(clazz);
+                    count[0]++;
+                } catch (RuntimeException e) {
+                    SkimcaLogger.error("EventManager", "Failed to register indexed class " + clazz.getName(), e);
+                }
+            }
+        });
+
+        return count[0];
+    }
+
+    /**
+     * Adds a handler to the list of its event type without publishing it.
+     * Must hold {@link #registrationLock}.
+     */
+    private void addHandler(Class<?> eventType, RegisteredHandler handler) {
+        // The sorted snapshot is rebuilt once per batch
+        HandlerList handlerList = handlerMap.computeIfAbsent(eventType, k -> new HandlerList());
+        handlerList.handlers.add(handler);
+        dirtyLists.add(handlerList);
+    }
+
+    private void recordTiming(RegisteredHandler handler, Class<?> eventClass, long start) {
+        long now = System.nanoTime();
+        long elapsed = now - start;
+        handler.stats.record(elapsed, now);
+
+        long threshold = slowHandlerThresholdNanos;
+        if (threshold > 0 && elapsed > threshold && handler.stats.shouldReportSlow(now, SLOW_REPORT_INTERVAL)) {
+            SkimcaLogger.warn("EventManager", String.format(
+                    "Slow event handler %s took %.2f ms for event %s (max %.2f ms, threshold %.2f ms)",
+                    handler.name, elapsed / 1e6, eventClass.getSimpleName(),
+                    handler.stats.getMaxNanos() / 1e6, threshold / 1e6));
+        }
+    }
+
+    /**
+     * Creates the queue of an asynchronous handler. Must hold {@link #registrationLock}.
+     */
+    private AsyncChannel createChannel(String name, Class<?> eventType, EventListener listener,
+                                       EventTarget.Backpressure backpressure, int queueCapacity) {
+        if (RenderThreadEvent.class.isAssignableFrom(eventType)) {
+            SkimcaLogger.warn("EventManager", "Handler " + name + " receives render thread event "
+                    + eventType.getSimpleName() + ", async = true is ignored");
+            return null;
+        }
+
+        if (queueCapacity < 1) {
+            SkimcaLogger.warn("EventManager", "Handler " + name + " has queue capacity "
+                    + queueCapacity + ", using 1");
+            queueCapacity = 1;
+        }
+
+        // Resolve the executor per task, so setAsyncExecutor also applies to existing handlers
+        return new AsyncChannel(name, listener, backpressure, queueCapacity, task -> asyncExecutor.execute(task));
+    }
+
+    /**
+     * Merges the handlers registered for an event class, its superclasses and all
+     * interfaces they implement, in priority order.
+     */
+    private RegisteredHandler[] resolveHandlers(Class<?> eventClass) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        collectTypes(eventClass, types);
+
+        List<RegisteredHandler> merged = new ArrayList<>();
+        for (Class<?> type : types) {
+            HandlerList handlerList = handlerMap.get(type);
+            if (handlerList != null) {
+                Collections.addAll(merged, handlerList.snapshot);
+            }
+        }
+
+        if (merged.isEmpty()) {
+            return HandlerList.EMPTY;
+        }
+
+        RegisteredHandler[] resolved = merged.toArray(HandlerList.EMPTY);
+        Arrays.sort(resolved, HandlerList.ORDER);
+        return resolved;
+    }
+
+    private static void collectTypes(Class<?> type, Set<Class<?>> types) {
+        if (type == null || !types.add(type)) {
+            return;
+        }
+
+        collectTypes(type.getSuperclass(), types);
+        for (Class<?> anInterface : type.getInterfaces()) {
+            collectTypes(anInterface, types);
+        }
+    }
+
     /**
      * Internal method to register a class with an instance supplier.
      */
     private void registerClassInternal(Class<?> clazz, Supplier<Object> instanceSupplier) {
+        synchronized (registrationLock) {
+            registerClassLocked(clazz, instanceSupplier);
+            publishIfNotBatching();
+        }
+    }
+
+    /**
+     * Registers the handlers of a class without publishing them. Must hold {@link #registrationLock}.
+     */
+    private void registerClassLocked(Class<?> clazz, Supplier<Object> instanceSupplier) {
         // Check if this class has already been registered
         if (registeredClasses.contains(clazz)) {
             SkimcaLogger.warn("EventManager", "Class " + clazz.getName() + " is already registered");
@@ -244,29 +678,26 @@ public class SkimcaEventManager {
 
                 Class<?> paramType = method.getParameterTypes()[0];
 
-                // Verify the parameter is an Event subclass
-                if (Event.class.isAssignableFrom(paramType)) {
-                    @SuppressWarnings("unchecked")
-                    Class<? extends Event> eventClass = (Class<? extends Event>) paramType;
-
-                    // Make the method accessible if it's private
-                    if (!method.isAccessible()) {
-                        method.setAccessible(true);
-                    }
+                // Verify the parameter is an Event subclass, or an interface events may implement
+                if (Event.class.isAssignableFrom(paramType) || paramType.isInterface()) {
+                    Class<?> eventClass = paramType;
+                    String name = clazz.getName() + "#" + method.getName();
+                    EventListener listener = EventInvokers.create(method, instance);
 
                     RegisteredHandler handler = new RegisteredHandler(
                             method,
+                            name,
                             instance,
+                            listener,
                             annotation.priority(),
-                            annotation.ignoreCancelled()
+                            annotation.ignoreCancelled(),
+                            registrationCounter++,
+                            annotation.async() ? createChannel(name, eventClass, listener,
+                                    annotation.backpressure(), annotation.queueCapacity()) : null,
+                            new HandlerStats(name, eventClass)
                     );
 
-                    // Add to handler map
-                    handlerMap.computeIfAbsent(eventClass, k -> new CopyOnWriteArrayList<>())
-                            .add(handler);
-
-                    // Sort handlers by priority (highest first)
-                    handlerMap.get(eventClass).sort(Comparator.comparingInt(h -> -h.priority.ordinal()));
+                    addHandler(eventClass, handler);
 
                     methodObjectMap.put(method, instance);
                     registeredCount++;
@@ -278,7 +709,7 @@ public class SkimcaEventManager {
                 } else {
                     SkimcaLogger.error("EventManager",
                             "Method " + method.getName() + " in class " + clazz.getName() +
-                                    " has @EventTarget annotation but parameter is not an Event subclass");
+                                    " has @EventTarget annotation but parameter is not an Event subclass or interface");
                 }
             }
         }
@@ -331,8 +762,40 @@ public class SkimcaEventManager {
     }
 
     /**
-         * Internal representation of a registered event handler.
-         */
-    private record RegisteredHandler(Method method, Object instance, EventTarget.Priority priority,
-                                     boolean ignoreCancelled) {}
+     * The handlers of one event class. The mutable list is only touched under the
+     * registration lock; dispatch reads the immutable, priority-sorted snapshot.
+     */
+    private static final class HandlerList {
+        private static final RegisteredHandler[] EMPTY = new RegisteredHandler[0];
+
+        /** Higher priorities first, then registration order. */
+        private static final Comparator<RegisteredHandler> ORDER =
+                Comparator.<RegisteredHandler>comparingInt(h -> -h.priority.ordinal())
+                        .thenComparingLong(h -> h.order);
+
+        private final List<RegisteredHandler> handlers = new ArrayList<>();
+
+        private volatile RegisteredHandler[] snapshot = EMPTY;
+
+        private void publish() {
+            RegisteredHandler[] sorted = handlers.toArray(EMPTY);
+            Arrays.sort(sorted, ORDER);
+            snapshot = sorted;
+        }
+    }
+
+    /**
+     * Internal representation of a registered event handler.
+     * {@code method} is {@code null} for handlers registered from a generated index,
+     * {@code channel} is {@code null} for synchronous handlers.
+     */
+    private record RegisteredHandler(Method method, String name, Object instance, EventListener listener,
+                                     EventTarget.Priority priority, boolean ignoreCancelled, long order,
+                                     AsyncChannel channel, HandlerStats stats) {}
+
+    /**
+     * A class loader and the package its indexes were looked up for;
+     * the empty package stands for every index of the class loader.
+     */
+    private record IndexScope(ClassLoader classLoader, String packageName) {}
 }
\ No newline at end of file
@@ -7,22 +7,22 @@ import cn.pupperclient.skimca.context.SkiaContext;
 import cn.pupperclient.skimca.event.EventTarget;
 import cn.pupperclient.skimca.event.RenderSkiaEvent;
 import cn.pupperclient.skimca.font.FontHelper;
+import cn.pupperclient.skimca.utils.ColorUtils;
 import net.minecraft.client.MinecraftClient;
 
-import java.awt.*;
-
 public class ExampleSkimca {
+    public static final String FONT = "Inter-Regular-CJKsc.ttf";
+    public static final String FONT_PATH = "/assets/skimca/fonts/Inter-Regular-CJKsc.ttf";
+
+    private static final int TEXT_COLOR = ColorUtils.argb(180, 255, 255, 255);
+
     @EventTarget(priority = EventTarget.Priority.HIGH)
     public void onInGameRender(RenderSkiaEvent event) {
         // SkimcaLogger.info("ExampleSkimca", "render");
         MinecraftClient client = MinecraftClient.getInstance();
         String versionText = "Skimca v" + SkimcaClient.Version;
 
-        var font = FontHelper.load(
-                "Inter-Regular-CJKsc.ttf",
-                8,
-                "/assets/skimca/fonts/Inter-Regular-CJKsc.ttf"
-        );
+        var font = FontHelper.load(FONT, 8, FONT_PATH);
         var textBounds = Skimca.getTextBounds(versionText, font);
         float x = client.getWindow().getWidth() / 2f;
         float y = client.getWindow().getHeight() / 2f;
@@ -35,7 +35,7 @@ public class ExampleSkimca {
                     versionText,
                     x,
                     y,
-                    new Color(255, 255, 255, 180),
+                    TEXT_COLOR,
                     font
             );
 
@@ -1,20 +1,61 @@
 package cn.pupperclient.skimca.font;
 
+import cn.pupperclient.skimca.SkimcaLogger;
 import cn.pupperclient.skimca.utils.SkimcaUtils;
 import io.github.humbleui.skija.*;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * A helper class for loading and caching fonts using Skija.
- * Provides methods to load fonts from file paths and manage a cache of typefaces.
+ * Provides methods to load fonts from file paths and manage a cache of typefaces. <br/>
+ * Fonts returned by {@code load} are cached, shared and owned by this class; callers must not
+ * close or modify them. Use {@link #releaseFonts(String)} or {@link #clearCache()} to free them. <br/>
+ * Their settings are recorded once, so {@link #getSettings(Font)} describes them without
+ * calling into Skia. <br/>
+ * All methods are thread-safe. Typefaces can be loaded in the background with
+ * {@link #loadAsync}; while such a load is in flight, {@code load} serves a font built
+ * from the platform default typeface instead of blocking the render thread.
  */
 public class FontHelper {
 
     /** Cache of loaded typefaces, keyed by font name. */
-    private static final Map<String, Typeface> typefaceCache = new HashMap<>();
+    private static final Map<String, Typeface> typefaceCache = new ConcurrentHashMap<>();
+
+    /** Cache of font instances, keyed by font name, size and rendering settings. */
+    private static final Map<FontKey, Font> fontCache = new ConcurrentHashMap<>();
+
+    /** Settings of the cached font instances, by identity since {@code Font.equals} calls into Skia. */
+    private static final Map<Font, FontSettings> fontSettings = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /** Typefaces currently being loaded in the background, keyed by font name. */
+    private static final Map<String, CompletableFuture<Typeface>> pendingLoads = new ConcurrentHashMap<>();
+
+    /** Background thread reading and parsing font files. */
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Skimca-FontLoader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Cache key name used for fonts built from the fallback typeface. */
+    private static final String FALLBACK_FONT = "<fallback>";
+
+    /** The platform default typeface, resolved lazily. */
+    private static volatile Typeface fallbackTypeface;
+
+    /** Edging applied by the {@code load} overloads that do not specify one. */
+    public static final FontEdging DEFAULT_EDGING = FontEdging.ANTI_ALIAS;
+
+    /** Hinting applied by the {@code load} overloads that do not specify one. */
+    public static final FontHinting DEFAULT_HINTING = FontHinting.NORMAL;
 
     /**
      * Retrieves a typeface from the cache or loads it if not present.
@@ -43,18 +84,47 @@ public class FontHelper {
                 .orElseThrow(() -> new IllegalArgumentException("Font not found: " + font));
     }
 
+    /**
+     * Loads a font with the specified name, size, type, path and rendering settings.
+     * Repeated calls with the same arguments return the same cached instance.
+     *
+     * @param font     the name of the font file (e.g., "arial.ttf")
+     * @param size     the font size in points
+     * @param fontType the type of the font (e.g., TTF, OTF)
+     * @param path     the file system path to the font directory
+     * @param edging   the edging mode of the font
+     * @param hinting  the hinting level of the font
+     * @return a cached {@link Font} instance with the specified typeface and size
+     */
+    public static Font load(String font, float size, FontType fontType, String path, FontEdging edging,
+                            FontHinting hinting) {
+        FontKey key = new FontKey(font, size, edging, hinting);
+        Font cached = fontCache.get(key);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        // Don't block on a typeface that is still loading in the background
+        if (!typefaceCache.containsKey(font) && pendingLoads.containsKey(font)) {
+            return loadFallback(size, edging, hinting);
+        }
+
+        return cacheFont(key, getTypeface(font, fontType, path));
+    }
+
     /**
      * Loads a font with the specified name, size, type, and path.
+     * Repeated calls with the same arguments return the same cached instance.
      *
      * @param font     the name of the font file (e.g., "arial.ttf")
      * @param size     the font size in points
      * @param fontType the type of the font (e.g., TTF, OTF)
      * @param path     the file system path to the font directory
-     * @return a {@link Font} instance with the specified typeface and size
+     * @return a cached {@link Font} instance with the specified typeface and size
      */
     public static Font load(String font, float size, FontType fontType, String path) {
-        Typeface typeface = getTypeface(font, fontType, path);
-        return new Font(typeface, size);
+        return load(font, size, fontType, path, DEFAULT_EDGING, DEFAULT_HINTING);
     }
 
     /**
@@ -71,6 +141,139 @@ public class FontHelper {
     }
 
 
+    /**
+     * Returns a font built from the platform default typeface, used while
+     * the requested typeface is still loading.
+     *
+     * @param size the font size in points
+     * @return a cached fallback {@link Font}
+     */
+    public static Font loadFallback(float size) {
+        return loadFallback(size, DEFAULT_EDGING, DEFAULT_HINTING);
+    }
+
+    private static Font loadFallback(float size, FontEdging edging, FontHinting hinting) {
+        FontKey key = new FontKey(FALLBACK_FONT, size, edging, hinting);
+        Font cached = fontCache.get(key);
+        return cached != null ? cached : cacheFont(key, getFallbackTypeface());
+    }
+
+    /**
+     * Returns the platform default typeface.
+     *
+     * @return the fallback {@link Typeface}
+     */
+    public static Typeface getFallbackTypeface() {
+        Typeface typeface = fallbackTypeface;
+
+        if (typeface == null) {
+            synchronized (FontHelper.class) {
+                typeface = fallbackTypeface;
+                if (typeface == null) {
+                    typeface = FontMgr.getDefault().matchFamilyStyle(null, FontStyle.NORMAL);
+                    fallbackTypeface = typeface;
+                }
+            }
+        }
+
+        return typeface;
+    }
+
+    /**
+     * Returns the settings that affect how text is shaped and drawn with the given font. <br/>
+     * Fonts returned by {@code load} are described from what was recorded when they were
+     * created; any other font can be changed by its owner, so it is queried every time.
+     *
+     * @param font the font
+     * @return the settings of the font
+     */
+    public static FontSettings getSettings(Font font) {
+        FontSettings settings = fontSettings.get(font);
+        return settings != null ? settings : FontSettings.of(font);
+    }
+
+    /**
+     * Creates a font for the key and caches it, keeping the existing instance if another
+     * thread cached one first.
+     */
+    private static Font cacheFont(FontKey key, Typeface typeface) {
+        Font instance = new Font(typeface, key.size());
+        instance.setEdging(key.edging());
+        instance.setHinting(key.hinting());
+
+        // Recorded before the font is published, so no caller ever has to query it
+        fontSettings.put(instance, FontSettings.of(instance));
+        Font existing = fontCache.putIfAbsent(key, instance);
+
+        if (existing != null) {
+            fontSettings.remove(instance);
+            instance.close();
+            return existing;
+        }
+
+        return instance;
+    }
+
+    /**
+     * Loads a typeface on the background font loader thread.
+     * Completes immediately if the typeface is already cached, and returns the
+     * in-flight future if the same font is already being loaded.
+     *
+     * @param font the name of the font file
+     * @param type the font type (e.g., TTF, OTF)
+     * @param path the file system path to the font directory
+     * @return a future completed with the loaded {@link Typeface}
+     */
+    public static CompletableFuture<Typeface> loadAsync(String font, FontType type, String path) {
+        Typeface cached = typefaceCache.get(font);
+
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<Typeface> future = new CompletableFuture<>();
+        CompletableFuture<Typeface> existing = pendingLoads.putIfAbsent(font, future);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        loader.execute(() -> {
+            try {
+                future.complete(getTypeface(font, type, path));
+            } catch (Exception e) {
+                SkimcaLogger.error("FontHelper", "Failed to load font: " + font, e);
+                future.completeExceptionally(e);
+            } finally {
+                pendingLoads.remove(font, future);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Loads a typeface on the background font loader thread.
+     * The font type is inferred from the file extension.
+     *
+     * @param font the name of the font file
+     * @param path the file system path to the font directory
+     * @return a future completed with the loaded {@link Typeface}
+     */
+    public static CompletableFuture<Typeface> loadAsync(String font, String path) {
+        return loadAsync(font, getFontType(font), path);
+    }
+
+    /**
+     * Returns whether the typeface of the given font file is loaded and cached.
+     *
+     * @param font the name of the font file
+     * @return {@code true} if {@code load} will use the real typeface
+     */
+    public static boolean isLoaded(String font) {
+        return typefaceCache.containsKey(font);
+    }
+
     /**
      * Determines the font type from the file extension.
      *
@@ -84,9 +287,39 @@ public class FontHelper {
     }
 
     /**
-     * Clears all cached typefaces.
+     * Closes and removes every cached font instance of the given font file.
+     * The typeface itself stays cached.
+     *
+     * @param font the name of the font file
+     */
+    public static void releaseFonts(String font) {
+        fontCache.entrySet().removeIf(entry -> {
+            if (entry.getKey().font().equals(font)) {
+                fontSettings.remove(entry.getValue());
+                entry.getValue().close();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Returns the number of cached font instances.
+     *
+     * @return the number of cached fonts
+     */
+    public static int getCachedFontCount() {
+        return fontCache.size();
+    }
+
+    /**
+     * Closes all cached fonts and clears all cached typefaces.
+     * Fonts previously returned by {@code load} must no longer be used.
      */
     public static void clearCache() {
+        fontCache.values().forEach(Font::close);
+        fontCache.clear();
+        fontSettings.clear();
         typefaceCache.clear();
     }
 
@@ -101,4 +334,69 @@ public class FontHelper {
             getTypeface(font, getFontType(font), path);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Preloads the specified fonts into the cache on the background font loader thread.
+     * Intended to be called during mod initialization so the first frame does not
+     * parse font files.
+     *
+     * @param path  the file system path to the font directory
+     * @param fonts one or more font file names to preload
+     * @return a future completed once every font has been loaded
+     */
+    public static CompletableFuture<Void> preloadFontsAsync(String path, String... fonts) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[fonts.length];
+
+        for (int i = 0; i < fonts.length; i++) {
+            futures[i] = loadAsync(fonts[i], getFontType(fonts[i]), path);
+        }
+
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Identifies a cached font instance.
+     */
+    private record FontKey(String font, float size, FontEdging edging, FontHinting hinting) {}
+
+    /**
+     * The settings of a font that affect shaped text, as a plain value that is safe to use
+     * as a cache key and outlives the font.
+     *
+     * @param typefaceId the unique id of the typeface, or {@code 0} for the default typeface
+     * @param size       the font size in points
+     * @param edging     the edging mode
+     * @param hinting    the hinting level
+     * @param subpixel   whether glyphs are positioned at subpixel precision
+     * @param scaleX     the horizontal scale of the glyphs
+     * @param skewX      the horizontal skew of the glyphs
+     */
+    public record FontSettings(int typefaceId, float size, FontEdging edging, FontHinting hinting,
+                               boolean subpixel, float scaleX, float skewX) {
+
+        /**
+         * Queries the current settings of a font from Skia.
+         *
+         * @param font the font
+         * @return the settings of the font
+         */
+        public static FontSettings of(Font font) {
+            return new FontSettings(getTypefaceId(font), font.getSize(), font.getEdging(), font.getHinting(),
+                    font.isSubpixel(), font.getScaleX(), font.getSkewX());
+        }
+
+        private static int getTypefaceId(Font font) {
+            Typeface typeface = font.getTypeface();
+
+            if (typeface == null) {
+                return 0;
+            }
+
+            try {
+                return typeface.getUniqueId();
+            } finally {
+                typeface.close();
+            }
+        }
+    }
+}
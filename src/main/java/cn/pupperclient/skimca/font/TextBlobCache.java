@@ -0,0 +1,181 @@
+package cn.pupperclient.skimca.font;
+
+import io.github.humbleui.skija.Font;
+import io.github.humbleui.skija.FontMetrics;
+import io.github.humbleui.skija.TextBlob;
+import io.github.humbleui.types.Rect;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded LRU cache of pre-shaped text. <br/>
+ * Each entry holds a {@link TextBlob} positioned like {@code Canvas.drawString} would
+ * lay it out, together with the measured bounds, so a label that is drawn every frame
+ * is shaped and measured only once. <br/>
+ * Fonts are identified by their {@link FontHelper.FontSettings}, which costs no native call
+ * for fonts returned by {@link FontHelper}.
+ */
+public class TextBlobCache {
+
+    /** Default number of distinct strings kept in the cache. */
+    public static final int DEFAULT_CAPACITY = 512;
+
+    /** Cached entries in access order, eldest first. */
+    private final LinkedHashMap<Key, Entry> entries;
+
+    /** Font metrics per font settings, which would otherwise cost a native call on every lookup. */
+    private final Map<FontHelper.FontSettings, FontMetrics> metrics = new HashMap<>();
+
+    private final int capacity;
+
+    /** Evicted entries whose blobs may still be in use by another thread, closed once nothing defers them. */
+    private final ArrayList<Entry> retired = new ArrayList<>();
+
+    /** Number of open {@link #beginDeferredClose()} calls. */
+    private int deferredClose;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a cache holding at most {@code capacity} strings.
+     *
+     * @param capacity the maximum number of cached entries
+     */
+    public TextBlobCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > TextBlobCache.this.capacity) {
+                    if (deferredClose > 0) {
+                        retired.add(eldest.getValue());
+                    } else {
+                        eldest.getValue().close();
+                    }
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the shaped text for the given string and font, shaping it on a miss.
+     *
+     * @param text the text to shape
+     * @param font the font to shape with
+     * @return the cached entry
+     */
+    public synchronized Entry get(String text, Font font) {
+        Key key = new Key(text, FontHelper.getSettings(font));
+
+        Entry entry = entries.get(key);
+
+        if (entry != null) {
+            hits++;
+            return entry;
+        }
+
+        misses++;
+        entry = shape(text, font);
+        entries.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Returns the metrics of the given font, cached per font settings.
+     *
+     * @param font the font
+     * @return the font metrics
+     */
+    public synchronized FontMetrics getMetrics(Font font) {
+        return metrics.computeIfAbsent(FontHelper.getSettings(font), settings -> font.getMetrics());
+    }
+
+    /**
+     * Keeps blobs evicted from now on open until the matching {@link #endDeferredClose()}.
+     * Used while other threads draw entries they got from the cache, since an entry evicted
+     * between {@link #get} and the draw would otherwise be closed under them.
+     */
+    public synchronized void beginDeferredClose() {
+        deferredClose++;
+    }
+
+    /**
+     * Ends a {@link #beginDeferredClose()}, closing the retired blobs once no caller defers any more.
+     */
+    public synchronized void endDeferredClose() {
+        if (deferredClose > 0 && --deferredClose == 0) {
+            retired.forEach(Entry::close);
+            retired.clear();
+        }
+    }
+
+    /**
+     * Closes and removes every cached entry.
+     */
+    public synchronized void clear() {
+        entries.values().forEach(Entry::close);
+        entries.clear();
+        metrics.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private static Entry shape(String text, Font font) {
+        Rect bounds = font.measureText(text);
+        short[] glyphs = font.getStringGlyphs(text);
+
+        if (glyphs.length == 0) {
+            return new Entry(null, bounds);
+        }
+
+        float[] positions = font.getXPositions(glyphs);
+        return new Entry(TextBlob.makeFromPosH(glyphs, positions, 0, font), bounds);
+    }
+
+    /**
+     * A shaped string and its measured bounds.
+     *
+     * @param blob   the shaped glyphs with the baseline origin at (0, 0), or {@code null} for empty text
+     * @param bounds the bounds reported by {@code Font.measureText}
+     */
+    public record Entry(TextBlob blob, Rect bounds) {
+
+        private void close() {
+            if (blob != null) {
+                blob.close();
+            }
+        }
+    }
+
+    private record Key(String text, FontHelper.FontSettings font) {}
+}
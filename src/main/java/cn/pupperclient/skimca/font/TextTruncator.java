@@ -0,0 +1,121 @@
+package cn.pupperclient.skimca.font;
+
+import io.github.humbleui.skija.Font;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Truncates text to a maximum width, appending an ellipsis when characters are removed. <br/>
+ * Glyph advances are measured once per string and the cut point is found with a binary
+ * search over their prefix sums. Results are memoized in a bounded LRU cache, so a label
+ * truncated every frame is only measured the first time. <br/>
+ * Results are keyed by {@link FontHelper.FontSettings} rather than the font itself, so the
+ * memo holds no native handles and stays valid after a font is closed.
+ */
+public class TextTruncator {
+
+    /** Default number of memoized truncation results. */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /** The suffix appended to truncated text. */
+    public static final String ELLIPSIS = "...";
+
+    private final LinkedHashMap<Key, String> results;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a truncator memoizing at most {@code capacity} results.
+     *
+     * @param capacity the maximum number of memoized results
+     */
+    public TextTruncator(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+
+        this.results = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns {@code text} unchanged if it fits in {@code width} minus the ellipsis width,
+     * otherwise the longest prefix that does, followed by {@link #ELLIPSIS}.
+     * Surrogate pairs are never split.
+     *
+     * @param text  the text to truncate
+     * @param font  the font the text is drawn with
+     * @param width the available width
+     * @return the text, truncated if necessary
+     */
+    public synchronized String truncate(String text, Font font, float width) {
+        Key key = new Key(text, FontHelper.getSettings(font), width);
+        String result = results.get(key);
+
+        if (result != null) {
+            hits++;
+            return result;
+        }
+
+        misses++;
+        result = compute(text, font, width);
+        results.put(key, result);
+        return result;
+    }
+
+    /**
+     * Clears all memoized results.
+     */
+    public synchronized void clear() {
+        results.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private static String compute(String text, Font font, float width) {
+        float limit = width - font.measureTextWidth(ELLIPSIS);
+
+        short[] glyphs = font.getStringGlyphs(text);
+        float[] advances = font.getWidths(glyphs);
+
+        // One glyph per code point, so prefix[i] is the width of the first i code points
+        float[] prefix = new float[advances.length + 1];
+        for (int i = 0; i < advances.length; i++) {
+            prefix[i + 1] = prefix[i] + advances[i];
+        }
+
+        if (prefix[advances.length] <= limit) {
+            return text;
+        }
+
+        int low = 0;
+        int high = advances.length;
+
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+
+            if (prefix[mid] <= limit) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        int codePoints = Math.min(low, text.codePointCount(0, text.length()));
+        return text.substring(0, text.offsetByCodePoints(0, codePoints)) + ELLIPSIS;
+    }
+
+    private record Key(String text, FontHelper.FontSettings font, float width) {}
+}
@@ -0,0 +1,149 @@
+package cn.pupperclient.skimca.image;
+
+import cn.pupperclient.skimca.SkimcaLogger;
+import io.github.humbleui.skija.Data;
+import io.github.humbleui.skija.Image;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads images in two stages so the render thread never waits on I/O or decoding. <br/>
+ * Reading and raster decoding run on a pool of worker threads. Decoded images are then
+ * handed to the target {@link ImageCache} on the render thread by {@link #processUploads()},
+ * at most {@link #getUploadsPerFrame()} per frame, so a burst of new skins turns into a
+ * few texture uploads per frame instead of one long stall.
+ */
+public class AsyncImageLoader {
+
+    /** Default number of decoded images made drawable per frame. */
+    public static final int DEFAULT_UPLOADS_PER_FRAME = 4;
+
+    /** Shared decoding pool, sized to leave cores for the game itself. */
+    private static final ExecutorService workers = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)),
+            new DecoderThreadFactory());
+
+    /** The cache decoded images are published to. */
+    private final ImageCache target;
+
+    /** Keys that are being read, decoded, or waiting to be uploaded. */
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    /** Keys that failed to load, so they are not retried every frame. */
+    private final Set<String> failed = ConcurrentHashMap.newKeySet();
+
+    /** Decoded images waiting for the render thread. */
+    private final Queue<DecodedImage> decoded = new ConcurrentLinkedQueue<>();
+
+    private volatile int uploadsPerFrame = DEFAULT_UPLOADS_PER_FRAME;
+
+    /**
+     * Creates a loader publishing into the given cache.
+     *
+     * @param target the cache that receives decoded images
+     */
+    public AsyncImageLoader(ImageCache target) {
+        this.target = target;
+    }
+
+    /**
+     * Requests an image, starting a background load if it is neither cached nor already in flight.
+     *
+     * @param key    the key the image is cached under
+     * @param source reads the encoded image data; called on a worker thread
+     * @return {@code true} if the image is cached and can be drawn now
+     */
+    public boolean request(String key, Callable<Data> source) {
+        if (target.contains(key)) {
+            return true;
+        }
+
+        if (failed.contains(key) || !pending.add(key)) {
+            return false;
+        }
+
+        workers.execute(() -> {
+            try (Data data = source.call()) {
+                decoded.add(new DecodedImage(key, ImageHelper.decode(data)));
+            } catch (Exception e) {
+                SkimcaLogger.error("ImageLoader", "Failed to load image: " + key, e);
+                failed.add(key);
+                pending.remove(key);
+            }
+        });
+
+        return false;
+    }
+
+    /**
+     * Publishes up to {@link #getUploadsPerFrame()} decoded images to the cache.
+     * Must be called on the render thread, once per frame.
+     *
+     * @return the number of images published
+     */
+    public int processUploads() {
+        int budget = uploadsPerFrame;
+        int uploaded = 0;
+
+        while (uploaded < budget) {
+            DecodedImage image = decoded.poll();
+
+            if (image == null) {
+                break;
+            }
+
+            target.put(image.key(), image.image());
+            pending.remove(image.key());
+            uploaded++;
+        }
+
+        return uploaded;
+    }
+
+    /**
+     * Allows images that previously failed to load to be requested again.
+     */
+    public void retryFailed() {
+        failed.clear();
+    }
+
+    public boolean isPending(String key) {
+        return pending.contains(key);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public int getUploadsPerFrame() {
+        return uploadsPerFrame;
+    }
+
+    public void setUploadsPerFrame(int uploadsPerFrame) {
+        if (uploadsPerFrame <= 0) {
+            throw new IllegalArgumentException("Uploads per frame must be positive: " + uploadsPerFrame);
+        }
+        this.uploadsPerFrame = uploadsPerFrame;
+    }
+
+    private record DecodedImage(String key, Image image) {}
+
+    private static class DecoderThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Skimca-ImageDecoder-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
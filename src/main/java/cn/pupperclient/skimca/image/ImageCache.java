@@ -0,0 +1,235 @@
+package cn.pupperclient.skimca.image;
+
+import io.github.humbleui.skija.Image;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-aware LRU cache of decoded images. <br/>
+ * Each image is charged its estimated decoded size ({@code width * height * 4} bytes).
+ * When the resident total exceeds the byte budget, the least recently used images are
+ * evicted and their native memory is released. <br/>
+ * The cache may be changed from any thread. While a frame is drawn, images it removes are
+ * only closed once the frame has been flushed, since the render thread may be drawing them.
+ */
+public class ImageCache {
+
+    /** Default byte budget: 64 MiB of decoded pixels. */
+    public static final long DEFAULT_BUDGET = 64L * 1024 * 1024;
+
+    /** Bytes per pixel assumed for decoded images (RGBA 8888). */
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /** Cached images in access order, eldest first. */
+    private final LinkedHashMap<String, CachedImage> entries = new LinkedHashMap<>(16, 0.75F, true);
+
+    private long budget;
+    private long bytesResident;
+
+    /** Removed images that may still be drawn by the current frame, closed once nothing defers them. */
+    private final ArrayList<Image> retired = new ArrayList<>();
+
+    /** Number of open {@link #beginDeferredClose()} calls. */
+    private int deferredClose;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a cache with the given byte budget.
+     *
+     * @param budget the maximum number of decoded bytes kept resident
+     */
+    public ImageCache(long budget) {
+        setBudget(budget);
+    }
+
+    /**
+     * Returns whether an image is cached under the given key, counting a hit or a miss
+     * and marking the image as recently used. This is the check a load makes, so
+     * it is where the hit rate is measured.
+     *
+     * @param key the path or identifier
+     * @return {@code true} if an image is cached under the key
+     */
+    public synchronized boolean lookup(String key) {
+        if (entries.get(key) == null) {
+            misses++;
+            return false;
+        }
+
+        hits++;
+        return true;
+    }
+
+    /**
+     * Returns the cached image for the given key, marking it as recently used.
+     * Not counted, since the image is normally fetched right after a {@link #lookup}.
+     *
+     * @param key the path or identifier the image was cached under
+     * @return the cached {@link Image}, or {@code null} if not cached
+     */
+    public synchronized Image get(String key) {
+        CachedImage entry = entries.get(key);
+        return entry != null ? entry.image() : null;
+    }
+
+    /**
+     * Returns whether an image is cached under the given key, without
+     * counting a hit or changing its recency.
+     *
+     * @param key the path or identifier
+     * @return {@code true} if an image is cached under the key
+     */
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Caches an image, closing any image previously cached under the same key,
+     * then evicts least recently used images until the budget is respected.
+     * The image just added is never evicted by its own insertion.
+     *
+     * @param key   the path or identifier
+     * @param image the image to cache; the cache takes ownership of it
+     */
+    public synchronized void put(String key, Image image) {
+        CachedImage entry = new CachedImage(image, estimateBytes(image));
+        CachedImage previous = entries.put(key, entry);
+
+        if (previous != null) {
+            bytesResident -= previous.bytes();
+            if (previous.image() != image) {
+                release(previous.image());
+            }
+        }
+
+        bytesResident += entry.bytes();
+        trim(key);
+    }
+
+    /**
+     * Removes and closes the image cached under the given key.
+     *
+     * @param key the path or identifier
+     */
+    public synchronized void remove(String key) {
+        CachedImage entry = entries.remove(key);
+
+        if (entry != null) {
+            bytesResident -= entry.bytes();
+            release(entry.image());
+        }
+    }
+
+    /**
+     * Removes and closes every cached image. Images still deferred are closed by {@link #endDeferredClose()}.
+     */
+    public synchronized void clear() {
+        entries.values().forEach(entry -> release(entry.image()));
+        entries.clear();
+        bytesResident = 0;
+    }
+
+    /**
+     * Keeps images removed from now on open until the matching {@link #endDeferredClose()}.
+     * {@code SkiaContext.draw} holds it for the whole frame, so another thread evicting an image
+     * cannot close it while the render thread draws it.
+     */
+    public synchronized void beginDeferredClose() {
+        deferredClose++;
+    }
+
+    /**
+     * Ends a {@link #beginDeferredClose()}, closing the retired images once no caller defers any more.
+     */
+    public synchronized void endDeferredClose() {
+        if (deferredClose > 0 && --deferredClose == 0) {
+            retired.forEach(Image::close);
+            retired.clear();
+        }
+    }
+
+    /**
+     * Changes the byte budget, evicting images immediately if the cache is now over it.
+     *
+     * @param budget the maximum number of decoded bytes kept resident
+     */
+    public synchronized void setBudget(long budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Budget must be positive: " + budget);
+        }
+
+        this.budget = budget;
+        trim(null);
+    }
+
+    public synchronized long getBudget() {
+        return budget;
+    }
+
+    public synchronized long getBytesResident() {
+        return bytesResident;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Estimates the decoded size of an image in bytes.
+     *
+     * @param image the image
+     * @return the estimated number of bytes
+     */
+    public static long estimateBytes(Image image) {
+        return (long) image.getWidth() * image.getHeight() * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Evicts least recently used entries until the cache fits its budget,
+     * skipping the entry stored under {@code keep}.
+     */
+    private void trim(String keep) {
+        Iterator<Map.Entry<String, CachedImage>> iterator = entries.entrySet().iterator();
+
+        while (bytesResident > budget && iterator.hasNext()) {
+            Map.Entry<String, CachedImage> eldest = iterator.next();
+
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+
+            iterator.remove();
+            bytesResident -= eldest.getValue().bytes();
+            release(eldest.getValue().image());
+            evictions++;
+        }
+    }
+
+    private void release(Image image) {
+        if (deferredClose > 0) {
+            retired.add(image);
+        } else {
+            image.close();
+        }
+    }
+
+    private record CachedImage(Image image, long bytes) {}
+}
@@ -3,18 +3,17 @@ package cn.pupperclient.skimca.image;
 import cn.pupperclient.skimca.SkimcaLogger;
 import cn.pupperclient.skimca.context.SkiaContext;
 import cn.pupperclient.skimca.utils.SkimcaUtils;
-import io.github.humbleui.skija.ColorType;
+import io.github.humbleui.skija.Bitmap;
+import io.github.humbleui.skija.Codec;
+import io.github.humbleui.skija.Data;
 import io.github.humbleui.skija.Image;
 import io.github.humbleui.skija.SurfaceOrigin;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.resource.Resource;
 import net.minecraft.resource.ResourceManager;
 import net.minecraft.util.Identifier;
-import org.lwjgl.opengl.GL11;
 
 import java.io.*;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -24,27 +23,46 @@ import java.util.Optional;
 public class ImageHelper {
 
     /** Cache of images loaded from files or resources, keyed by their path or identifier. */
-    private final Map<String, Image> images = new HashMap<>();
+    private final ImageCache images;
 
-    /** Cache of images created from OpenGL textures, keyed by texture ID. */
-    private final Map<Integer, Image> textures = new HashMap<>();
+    /** Cache of images wrapping OpenGL textures, keyed by texture ID. */
+    private final TextureCache textures = new TextureCache();
+
+    /** Background loader feeding {@link #images}. */
+    private final AsyncImageLoader loader;
+
+    /**
+     * Creates an image helper whose file and resource images share the default byte budget.
+     */
+    public ImageHelper() {
+        this(ImageCache.DEFAULT_BUDGET);
+    }
+
+    /**
+     * Creates an image helper whose file and resource images share the given byte budget.
+     *
+     * @param budget the maximum number of decoded image bytes kept resident
+     */
+    public ImageHelper(long budget) {
+        this.images = new ImageCache(budget);
+        this.loader = new AsyncImageLoader(images);
+    }
 
     /**
-     * Loads an image from an OpenGL texture and caches it.
+     * Wraps an OpenGL texture as an image and caches it. Minecraft keeps ownership of the texture,
+     * see {@link TextureCache} for how wrappers are kept from deleting it. <br/>
+     * Each distinct (texture, width, height, origin) keeps a small wrapper alive until the GPU
+     * context is closed, so avoid drawing a texture at a size that changes every frame.
      *
      * @param texture the OpenGL texture ID
      * @param width   the width of the texture
      * @param height  the height of the texture
      * @param origin  the surface origin (e.g., TOP_LEFT, BOTTOM_LEFT)
-     * @return {@code true} if the texture was successfully loaded or already cached
+     * @return {@code true} if the texture was successfully wrapped or already cached
      */
     public boolean load(int texture, float width, float height, SurfaceOrigin origin) {
-        if (!textures.containsKey(texture)) {
-            Image image = Image.adoptGLTextureFrom(SkiaContext.getContext(), texture, GL11.GL_TEXTURE_2D,
-                    (int) width, (int) height, GL11.GL_RGBA8, origin, ColorType.RGBA_8888);
-            textures.put(texture, image);
-        }
-        return true;
+        SkiaContext.checkNotRecording("ImageHelper");
+        return textures.get(SkiaContext.getContext(), texture, (int) width, (int) height, origin) != null;
     }
 
     /**
@@ -54,7 +72,9 @@ public class ImageHelper {
      * @return {@code true} if the image was successfully loaded, already cached, or if a non-critical error occurred
      */
     public boolean load(Identifier identifier) {
-        if (!images.containsKey(identifier.getPath())) {
+        SkiaContext.checkNotRecording("ImageHelper");
+
+        if (!images.lookup(identifier.getPath())) {
             ResourceManager resourceManager = MinecraftClient.getInstance().getResourceManager();
             Resource resource;
             try {
@@ -82,11 +102,18 @@ public class ImageHelper {
      *         {@code false} if the file could not be read or decoded
      */
     public boolean load(String filePath) {
-        if (!images.containsKey(filePath)) {
-            Optional<byte[]> encodedBytes = SkimcaUtils.convertToBytes(filePath);
-            if (encodedBytes.isPresent()) {
-                images.put(filePath, Image.makeDeferredFromEncodedBytes(encodedBytes.get()));
-                return true;
+        SkiaContext.checkNotRecording("ImageHelper");
+
+        if (!images.lookup(filePath)) {
+            Optional<Data> encodedData = SkimcaUtils.convertToData(filePath);
+            if (encodedData.isPresent()) {
+                try (Data data = encodedData.get()) {
+                    images.put(filePath, decodeDeferred(data));
+                    return true;
+                } catch (RuntimeException e) {
+                    SkimcaLogger.error("ImageHelper", "Failed to decode image: " + filePath, e);
+                    return false;
+                }
             } else {
                 return false;
             }
@@ -102,19 +129,140 @@ public class ImageHelper {
      *         {@code false} if the file could not be read or decoded
      */
     public boolean load(File file) {
-        if (!images.containsKey(file.getName())) {
-            try {
-                byte[] encoded = org.apache.commons.io.IOUtils.toByteArray(new FileInputStream(file));
-                images.put(file.getName(), Image.makeDeferredFromEncodedBytes(encoded));
+        SkiaContext.checkNotRecording("ImageHelper");
+
+        if (!images.lookup(file.getName())) {
+            Optional<Data> mapped = SkimcaUtils.convertToData(file);
+            if (mapped.isEmpty()) {
+                SkimcaLogger.error("ImageHelper", "Failed to load image from file: " + file.getAbsolutePath());
+                return false;
+            }
+
+            try (Data data = mapped.get()) {
+                images.put(file.getName(), decodeDeferred(data));
                 return true;
-            } catch (IOException e) {
-                SkimcaLogger.error("ImageHelper", "Failed to load image from file: " + file.getAbsolutePath(), e);
+            } catch (RuntimeException e) {
+                SkimcaLogger.error("ImageHelper", "Failed to decode image from file: " + file.getAbsolutePath(), e);
                 return false;
             }
         }
         return true;
     }
 
+    /**
+     * Requests an image from a Minecraft resource identifier without blocking.
+     * The resource is looked up immediately, but read and decoded on a worker thread.
+     *
+     * @param identifier the Minecraft resource identifier
+     * @return {@code true} if the image is cached and can be drawn now
+     */
+    public boolean loadAsync(Identifier identifier) {
+        SkiaContext.checkNotRecording("ImageHelper");
+
+        String key = identifier.getPath();
+
+        if (images.lookup(key)) {
+            return true;
+        }
+
+        if (loader.isPending(key)) {
+            return false;
+        }
+
+        Optional<Resource> resource = MinecraftClient.getInstance().getResourceManager().getResource(identifier);
+        if (resource.isEmpty()) {
+            return false;
+        }
+
+        return loader.request(key, () -> {
+            try (InputStream inputStream = resource.get().getInputStream()) {
+                return Data.makeFromBytes(inputStream.readAllBytes());
+            }
+        });
+    }
+
+    /**
+     * Requests an image from a file path without blocking.
+     *
+     * @param filePath the path to the image file
+     * @return {@code true} if the image is cached and can be drawn now
+     */
+    public boolean loadAsync(String filePath) {
+        SkiaContext.checkNotRecording("ImageHelper");
+
+        if (images.lookup(filePath)) {
+            return true;
+        }
+
+        return loader.request(filePath, () -> SkimcaUtils.convertToData(filePath)
+                .orElseThrow(() -> new IOException("Failed to read image: " + filePath)));
+    }
+
+    /**
+     * Requests an image from a File object without blocking.
+     *
+     * @param file the image file
+     * @return {@code true} if the image is cached and can be drawn now
+     */
+    public boolean loadAsync(File file) {
+        SkiaContext.checkNotRecording("ImageHelper");
+
+        if (images.lookup(file.getName())) {
+            return true;
+        }
+
+        return loader.request(file.getName(), () -> SkimcaUtils.convertToData(file)
+                .orElseThrow(() -> new IOException("Failed to read image: " + file.getAbsolutePath())));
+    }
+
+    /**
+     * Makes images decoded in the background available for drawing, within the
+     * loader's per-frame budget. Called by {@code SkiaContext.draw} once per frame.
+     *
+     * @return the number of images that became available
+     */
+    public int processUploads() {
+        SkiaContext.checkNotRecording("ImageHelper");
+        return loader.processUploads();
+    }
+
+    /**
+     * Returns the background loader, for tuning its per-frame budget.
+     *
+     * @return the async image loader
+     */
+    public AsyncImageLoader getLoader() {
+        return loader;
+    }
+
+    /**
+     * Creates an image that decodes the encoded data (PNG, JPEG, ...) when it is first drawn,
+     * so images loaded but never drawn cost neither the decode nor the decoded pixels. <br/>
+     * Skija only builds deferred images from a byte array, so the encoded bytes are copied once;
+     * they are the compressed file, not the pixels, and become garbage right away.
+     *
+     * @param data the encoded image data
+     * @return the lazily decoded image
+     */
+    static Image decodeDeferred(Data data) {
+        return Image.makeDeferredFromEncodedBytes(data.getBytes());
+    }
+
+    /**
+     * Decodes encoded image data (PNG, JPEG, ...) into a raster image right away.
+     * Used by the background loader, whose point is to pay the decode off the render thread.
+     * The encoded data is read in place, so memory-mapped files are never copied to the heap.
+     *
+     * @param data the encoded image data
+     * @return the decoded image
+     */
+    static Image decode(Data data) {
+        try (Codec codec = Codec.makeFromData(data); Bitmap bitmap = codec.readPixels()) {
+            bitmap.setImmutable();
+            return Image.makeRasterFromBitmap(bitmap);
+        }
+    }
+
     /**
      * Retrieves a cached image by its path or identifier.
      *
@@ -122,6 +270,7 @@ public class ImageHelper {
      * @return the cached {@link Image}, or {@code null} if not found
      */
     public Image get(String path) {
+        SkiaContext.checkNotRecording("ImageHelper");
         return images.get(path);
     }
 
@@ -132,6 +281,37 @@ public class ImageHelper {
      * @return the cached {@link Image}, or {@code null} if not found
      */
     public Image get(int texture) {
-        return textures.get(texture);
+        SkiaContext.checkNotRecording("ImageHelper");
+        return textures.peek(texture);
+    }
+
+    /**
+     * Releases every image that may belong to the GPU context being replaced: the texture
+     * wrappers and the cached images. Called by {@link SkiaContext#setBackend} once the old
+     * context is abandoned; images are loaded again the next time they are drawn.
+     * Images still being decoded are CPU-side and are published as usual.
+     */
+    public void releaseContextImages() {
+        textures.clear();
+        images.clear();
+    }
+
+    /**
+     * Returns the cache holding images loaded from files or resources,
+     * for adjusting its budget or reading its statistics.
+     *
+     * @return the image cache
+     */
+    public ImageCache getImageCache() {
+        return images;
+    }
+
+    /**
+     * Returns the cache of wrapped OpenGL textures, for invalidation hooks.
+     *
+     * @return the texture cache
+     */
+    public TextureCache getTextureCache() {
+        return textures;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,176 @@
+package cn.pupperclient.skimca.image;
+
+import cn.pupperclient.skimca.SkimcaLogger;
+import cn.pupperclient.skimca.context.SkiaContext;
+import io.github.humbleui.skija.ColorType;
+import io.github.humbleui.skija.DirectContext;
+import io.github.humbleui.skija.Image;
+import io.github.humbleui.skija.SurfaceOrigin;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.lwjgl.opengl.GL11;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Caches Skia images wrapping OpenGL textures owned by Minecraft. <br/>
+ * Wrappers are keyed by (texture ID, width, height, origin). A wrapper samples its texture ID
+ * live, so it sees contents re-uploaded in place and only a size or origin change needs another one. <br/>
+ * Skija can only wrap a texture with {@code Image.adoptGLTextureFrom}, which hands ownership to
+ * Skia: releasing the last reference to a wrapper makes Skia delete the texture, possibly after
+ * a later flush, when the ID may belong to another texture. Minecraft keeps ownership here, so
+ * wrappers are never closed before the GPU context is abandoned, which releases them without any
+ * GL call. Instead, every wrapper is pooled under its texture ID and reused whenever that ID is
+ * drawn again at the same size and origin, so the pool holds one small wrapper per distinct
+ * (ID, width, height, origin) rather than growing with every rewrap.
+ * Must only be used on the render thread.
+ */
+public class TextureCache {
+
+    /** Pool size above which a warning is logged once, as it usually means textures are resized every frame. */
+    private static final int POOL_WARN_THRESHOLD = 256;
+
+    /** Current wrapper per texture ID; a primitive map so per-frame lookups don't box. */
+    private final Int2ObjectMap<TextureEntry> entries = new Int2ObjectOpenHashMap<>();
+
+    /** Every wrapper adopted so far, per texture ID, kept referenced so Skia never deletes their texture. */
+    private final Int2ObjectMap<List<TextureEntry>> pool = new Int2ObjectOpenHashMap<>();
+
+    private int pooled;
+    private boolean warned;
+
+    private long wraps;
+    private long hits;
+
+    /**
+     * Returns a wrapper for the given texture, reusing a pooled one with the same size and
+     * origin, or wrapping the texture if it was never drawn that way before.
+     *
+     * @param context the Skia GPU context, or {@code null} when not rendering through OpenGL
+     * @param texture the OpenGL texture ID
+     * @param width   the width of the texture
+     * @param height  the height of the texture
+     * @param origin  the surface origin of the texture
+     * @return the wrapping {@link Image}, or {@code null} if there is no GPU context
+     */
+    public Image get(DirectContext context, int texture, int width, int height, SurfaceOrigin origin) {
+        SkiaContext.checkNotRecording("TextureCache");
+
+        TextureEntry entry = entries.get(texture);
+
+        if (entry != null && entry.matches(width, height, origin)) {
+            hits++;
+            return entry.image();
+        }
+
+        List<TextureEntry> wrappers = pool.get(texture);
+
+        if (wrappers != null) {
+            for (TextureEntry pooledEntry : wrappers) {
+                if (pooledEntry.matches(width, height, origin)) {
+                    // Adopting the ID a second time would only add another wrapper that must outlive it
+                    entries.put(texture, pooledEntry);
+                    hits++;
+                    return pooledEntry.image();
+                }
+            }
+        }
+
+        if (context == null) {
+            return null;
+        }
+
+        Image image = Image.adoptGLTextureFrom(context, texture, GL11.GL_TEXTURE_2D, width, height, GL11.GL_RGBA8,
+                origin, ColorType.RGBA_8888);
+        entry = new TextureEntry(image, width, height, origin);
+        entries.put(texture, entry);
+
+        if (wrappers == null) {
+            wrappers = new ArrayList<>(1);
+            pool.put(texture, wrappers);
+        }
+
+        wrappers.add(entry);
+        pooled++;
+        wraps++;
+
+        if (pooled > POOL_WARN_THRESHOLD && !warned) {
+            warned = true;
+            SkimcaLogger.warn("TextureCache", "Holding " + pooled + " texture wrappers for " + pool.size()
+                    + " texture IDs; they are only released when the GPU context is closed");
+        }
+
+        return image;
+    }
+
+    /**
+     * Returns the current wrapper for the given texture without validating it.
+     *
+     * @param texture the OpenGL texture ID
+     * @return the wrapping {@link Image}, or {@code null} if the texture is not wrapped
+     */
+    public Image peek(int texture) {
+        TextureEntry entry = entries.get(texture);
+        return entry != null ? entry.image() : null;
+    }
+
+    /**
+     * Stops using the current wrapper of the given texture, so it is looked up again on its
+     * next use, e.g. after its contents were re-uploaded with a different size.
+     *
+     * @param texture the OpenGL texture ID
+     */
+    public void invalidate(int texture) {
+        entries.remove(texture);
+    }
+
+    /**
+     * Stops drawing a texture that Minecraft is about to delete. Its wrappers stay pooled rather
+     * than closed, so Skia does not delete the ID as well, now or after the ID has been reused,
+     * and a texture that later gets the same ID and size reuses them.
+     *
+     * @param texture the OpenGL texture ID
+     */
+    public void onTextureDeleted(int texture) {
+        entries.remove(texture);
+    }
+
+    /**
+     * Drops every wrapper. Only call this after the GPU context the wrappers were made on
+     * has been abandoned, so releasing them cannot delete Minecraft's textures.
+     */
+    public void clear() {
+        pool.values().forEach(wrappers -> wrappers.forEach(entry -> entry.image().close()));
+        pool.clear();
+        entries.clear();
+        pooled = 0;
+        warned = false;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of wrappers kept alive until the GPU context is closed
+     */
+    public int getPooledCount() {
+        return pooled;
+    }
+
+    public long getWraps() {
+        return wraps;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    private record TextureEntry(Image image, int width, int height, SurfaceOrigin origin) {
+
+        private boolean matches(int width, int height, SurfaceOrigin origin) {
+            return this.width == width && this.height == height && this.origin == origin;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package cn.pupperclient.skimca.mixins;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+@Mixin(targets = "com.mojang.blaze3d.platform.GlStateManager$BlendFuncState")
+public interface BlendFuncStateAccessor {
+    @Accessor("srcFactorRGB")
+    int getSrcFactorRgb();
+
+    @Accessor("dstFactorRGB")
+    int getDstFactorRgb();
+
+    @Accessor("srcFactorAlpha")
+    int getSrcFactorAlpha();
+
+    @Accessor("dstFactorAlpha")
+    int getDstFactorAlpha();
+}
@@ -0,0 +1,15 @@
+package cn.pupperclient.skimca.mixins;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+@Mixin(targets = {
+        "com.mojang.blaze3d.platform.GlStateManager$BlendFuncState",
+        "com.mojang.blaze3d.platform.GlStateManager$DepthTestState",
+        "com.mojang.blaze3d.platform.GlStateManager$CullFaceState",
+        "com.mojang.blaze3d.platform.GlStateManager$ScissorTestState"
+})
+public interface CapabilityStateAccessor {
+    @Accessor("capState")
+    Object getCapState();
+}
@@ -0,0 +1,19 @@
+package cn.pupperclient.skimca.mixins;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+@Mixin(targets = "com.mojang.blaze3d.platform.GlStateManager$ColorMask")
+public interface ColorMaskAccessor {
+    @Accessor("red")
+    boolean getRed();
+
+    @Accessor("green")
+    boolean getGreen();
+
+    @Accessor("blue")
+    boolean getBlue();
+
+    @Accessor("alpha")
+    boolean getAlpha();
+}
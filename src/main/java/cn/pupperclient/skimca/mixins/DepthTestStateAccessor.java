@@ -0,0 +1,10 @@
+package cn.pupperclient.skimca.mixins;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+@Mixin(targets = "com.mojang.blaze3d.platform.GlStateManager$DepthTestState")
+public interface DepthTestStateAccessor {
+    @Accessor("mask")
+    boolean getMask();
+}
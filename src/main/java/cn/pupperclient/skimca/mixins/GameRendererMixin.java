@@ -3,6 +3,8 @@ package cn.pupperclient.skimca.mixins;
 import cn.pupperclient.skimca.Skimca;
 import cn.pupperclient.skimca.SkimcaClient;
 import cn.pupperclient.skimca.context.SkiaContext;
+import cn.pupperclient.skimca.debug.EventStatsOverlay;
+import cn.pupperclient.skimca.debug.FrameProfilerOverlay;
 import cn.pupperclient.skimca.event.RenderSkiaEvent;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.render.GameRenderer;
@@ -20,7 +22,14 @@ public class GameRendererMixin {
             Skimca.save();
             Skimca.scale((float) MinecraftClient.getInstance().getWindow().getScaleFactor());
             SkimcaClient.getEventManager().call(new RenderSkiaEvent(context));
+            EventStatsOverlay.render();
+            FrameProfilerOverlay.render(MinecraftClient.getInstance().getWindow().getScaledHeight());
             Skimca.restore();
         });
     }
+
+    @Inject(method = "render", at = @At("TAIL"))
+    public void renderTail(RenderTickCounter tickCounter, boolean tick, CallbackInfo ci) {
+        SkiaContext.endFrame();
+    }
 }
\ No newline at end of file
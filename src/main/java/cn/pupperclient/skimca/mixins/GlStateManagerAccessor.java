@@ -0,0 +1,51 @@
+package cn.pupperclient.skimca.mixins;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Reads {@link GlStateManager}'s shadow copy of the GL state without asking the driver. <br/>
+ * The state holders are package-private, so they are returned as {@code Object} and read
+ * through the accessors mixed into them.
+ */
+@Mixin(GlStateManager.class)
+public interface GlStateManagerAccessor {
+    @Accessor("BLEND")
+    static Object getBlend() {
+        throw new AssertionError();
+    }
+
+    @Accessor("DEPTH")
+    static Object getDepth() {
+        throw new AssertionError();
+    }
+
+    @Accessor("CULL")
+    static Object getCull() {
+        throw new AssertionError();
+    }
+
+    @Accessor("SCISSOR")
+    static Object getScissor() {
+        throw new AssertionError();
+    }
+
+    @Accessor("COLOR_MASK")
+    static Object getColorMask() {
+        throw new AssertionError();
+    }
+
+    @Accessor("TEXTURES")
+    static Object[] getTextures() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns the active texture unit as an index, {@code 0} for {@code GL_TEXTURE0}.
+     */
+    @Accessor("activeTexture")
+    static int getActiveTexture() {
+        throw new AssertionError();
+    }
+}
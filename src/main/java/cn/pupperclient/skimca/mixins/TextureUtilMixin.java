@@ -0,0 +1,17 @@
+package cn.pupperclient.skimca.mixins;
+
+import cn.pupperclient.skimca.Skimca;
+import com.mojang.blaze3d.platform.TextureUtil;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(TextureUtil.class)
+public class TextureUtilMixin {
+    @Inject(method = "releaseTextureId", at = @At("HEAD"))
+    private static void releaseTextureId(int id, CallbackInfo ci) {
+        // Stop drawing the texture before Minecraft deletes it and the ID can be reused
+        Skimca.getImageHelper().getTextureCache().onTextureDeleted(id);
+    }
+}
@@ -0,0 +1,108 @@
+package cn.pupperclient.skimca.paint;
+
+import io.github.humbleui.skija.Paint;
+
+import java.util.Arrays;
+
+/**
+ * A per-thread pool of reusable {@link Paint} objects. <br/>
+ * Paints handed out by {@link #acquire()} stay valid until the pool is reset,
+ * which {@code SkiaContext.draw} does at every frame boundary. Once the pool has
+ * grown to the frame's high-water mark, acquiring a paint allocates nothing.
+ */
+public final class PaintPool {
+
+    /** Initial number of paint slots per thread. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** One pool per drawing thread, since paints are mutated by their users. */
+    private static final ThreadLocal<PaintPool> POOLS = ThreadLocal.withInitial(PaintPool::new);
+
+    /** Slots for pooled paints; entries are created lazily. */
+    private Paint[] paints = new Paint[INITIAL_CAPACITY];
+
+    /** Index of the next slot to hand out. */
+    private int cursor;
+
+    /** Number of paints that have actually been created. */
+    private int allocated;
+
+    private PaintPool() {
+    }
+
+    /**
+     * Returns the pool bound to the calling thread.
+     *
+     * @return the current thread's paint pool
+     */
+    public static PaintPool get() {
+        return POOLS.get();
+    }
+
+    /**
+     * Returns a paint in its default state (anti-aliased, fill mode, no effects).
+     * The paint must not be retained past the current frame.
+     *
+     * @return a pooled paint
+     */
+    public Paint acquire() {
+        if (cursor == paints.length) {
+            paints = Arrays.copyOf(paints, paints.length * 2);
+        }
+
+        Paint paint = paints[cursor];
+
+        if (paint == null) {
+            paint = new Paint();
+            paints[cursor] = paint;
+            allocated++;
+        } else {
+            paint.reset();
+            paint.setAntiAlias(true);
+        }
+
+        cursor++;
+        return paint;
+    }
+
+    /**
+     * Makes every pooled paint available again. Paints acquired before this call
+     * must no longer be used.
+     */
+    public void reset() {
+        cursor = 0;
+    }
+
+    /**
+     * Returns the number of paints handed out since the last reset.
+     *
+     * @return the number of paints in use
+     */
+    public int getInUse() {
+        return cursor;
+    }
+
+    /**
+     * Returns the number of native paints this pool has created.
+     *
+     * @return the number of allocated paints
+     */
+    public int getAllocated() {
+        return allocated;
+    }
+
+    /**
+     * Closes all native paints owned by this pool and empties it.
+     */
+    public void close() {
+        for (int i = 0; i < paints.length; i++) {
+            if (paints[i] != null) {
+                paints[i].close();
+                paints[i] = null;
+            }
+        }
+
+        cursor = 0;
+        allocated = 0;
+    }
+}
@@ -0,0 +1,143 @@
+package cn.pupperclient.skimca.path;
+
+import io.github.humbleui.skija.Path;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded LRU cache of parsed SVG paths. <br/>
+ * Rects and rounded rects are clipped and drawn analytically and never need a {@link Path};
+ * this cache is for genuinely complex shapes such as icons, so a shape drawn every frame
+ * is parsed and its native path built only once.
+ */
+public class PathCache {
+
+    /** Default number of distinct paths kept in the cache. */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /** Cached paths in access order, eldest first. A {@code null} value marks an unparsable string. */
+    private final LinkedHashMap<String, Path> paths;
+
+    private final int capacity;
+
+    /** Evicted paths that may still be in use by another thread, closed once nothing defers them. */
+    private final ArrayList<Path> retired = new ArrayList<>();
+
+    /** Number of open {@link #beginDeferredClose()} calls. */
+    private int deferredClose;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a cache holding at most {@code capacity} paths.
+     *
+     * @param capacity the maximum number of cached paths
+     */
+    public PathCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+
+        this.capacity = capacity;
+        this.paths = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Path> eldest) {
+                if (size() > PathCache.this.capacity) {
+                    release(eldest.getValue());
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the path described by an SVG path string, parsing it on a miss. <br/>
+     * The path is owned by the cache and must not be modified or closed by the caller.
+     *
+     * @param svg the path data, as in the {@code d} attribute of an SVG {@code <path>}
+     * @return the cached path, or {@code null} if the string is not valid path data
+     */
+    public synchronized Path get(String svg) {
+        Path path = paths.get(svg);
+
+        if (path != null || paths.containsKey(svg)) {
+            hits++;
+            return path;
+        }
+
+        misses++;
+        try {
+            path = Path.makeFromSVGString(svg);
+        } catch (IllegalArgumentException e) {
+            // Remembered as unparsable, so a bad string is not parsed again every frame
+            path = null;
+        }
+        paths.put(svg, path);
+        return path;
+    }
+
+    /**
+     * Keeps paths evicted from now on open until the matching {@link #endDeferredClose()}.
+     * Used while other threads draw paths they got from the cache, since a path evicted
+     * between {@link #get} and the draw would otherwise be closed under them.
+     */
+    public synchronized void beginDeferredClose() {
+        deferredClose++;
+    }
+
+    /**
+     * Ends a {@link #beginDeferredClose()}, closing the retired paths once no caller defers any more.
+     */
+    public synchronized void endDeferredClose() {
+        if (deferredClose > 0 && --deferredClose == 0) {
+            retired.forEach(Path::close);
+            retired.clear();
+        }
+    }
+
+    /**
+     * Closes and removes every cached path. Paths still deferred are closed by {@link #endDeferredClose()}.
+     */
+    public synchronized void clear() {
+        paths.values().forEach(this::release);
+        paths.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return paths.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void release(Path path) {
+        if (path == null) {
+            return;
+        }
+
+        if (deferredClose > 0) {
+            retired.add(path);
+        } else {
+            path.close();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package cn.pupperclient.skimca.utils;
+
+/**
+ * Helpers for colors packed into a single {@code int} as {@code 0xAARRGGBB}. <br/>
+ * This is the same layout used by {@link java.awt.Color#getRGB()} and Skia,
+ * so values can be passed straight to the {@code int} overloads in {@code Skimca}.
+ */
+public class ColorUtils {
+
+	private ColorUtils() {
+	}
+
+	/**
+	 * Packs the given components into an ARGB color.
+	 *
+	 * @param alpha the alpha component (0-255)
+	 * @param red   the red component (0-255)
+	 * @param green the green component (0-255)
+	 * @param blue  the blue component (0-255)
+	 * @return the packed color
+	 */
+	public static int argb(int alpha, int red, int green, int blue) {
+		return (clamp(alpha) << 24) | (clamp(red) << 16) | (clamp(green) << 8) | clamp(blue);
+	}
+
+	/**
+	 * Packs the given components into a fully opaque color.
+	 *
+	 * @param red   the red component (0-255)
+	 * @param green the green component (0-255)
+	 * @param blue  the blue component (0-255)
+	 * @return the packed color
+	 */
+	public static int rgb(int red, int green, int blue) {
+		return argb(255, red, green, blue);
+	}
+
+	/** Extracts the alpha component (0-255) of a packed color. */
+	public static int alpha(int color) {
+		return color >>> 24;
+	}
+
+	/** Extracts the red component (0-255) of a packed color. */
+	public static int red(int color) {
+		return (color >> 16) & 0xFF;
+	}
+
+	/** Extracts the green component (0-255) of a packed color. */
+	public static int green(int color) {
+		return (color >> 8) & 0xFF;
+	}
+
+	/** Extracts the blue component (0-255) of a packed color. */
+	public static int blue(int color) {
+		return color & 0xFF;
+	}
+
+	/**
+	 * Replaces the alpha component of a color.
+	 *
+	 * @param color the packed color
+	 * @param alpha the new alpha (0-255)
+	 * @return the color with the new alpha
+	 */
+	public static int withAlpha(int color, int alpha) {
+		return (color & 0x00FFFFFF) | (clamp(alpha) << 24);
+	}
+
+	/**
+	 * Replaces the alpha component of a color.
+	 *
+	 * @param color the packed color
+	 * @param alpha the new alpha (0.0-1.0)
+	 * @return the color with the new alpha
+	 */
+	public static int withAlpha(int color, float alpha) {
+		return withAlpha(color, Math.round(alpha * 255));
+	}
+
+	/**
+	 * Scales the existing alpha of a color, e.g. to fade a widget in or out.
+	 *
+	 * @param color  the packed color
+	 * @param factor the multiplier applied to the current alpha (0.0-1.0)
+	 * @return the color with the scaled alpha
+	 */
+	public static int multiplyAlpha(int color, float factor) {
+		return withAlpha(color, Math.round(alpha(color) * factor));
+	}
+
+	/**
+	 * Linearly interpolates every component between two colors.
+	 *
+	 * @param from     the color at {@code progress = 0}
+	 * @param to       the color at {@code progress = 1}
+	 * @param progress the interpolation factor, clamped to 0.0-1.0
+	 * @return the interpolated color
+	 */
+	public static int mix(int from, int to, float progress) {
+		float t = Math.max(0, Math.min(1, progress));
+
+		return argb(
+				lerp(alpha(from), alpha(to), t),
+				lerp(red(from), red(to), t),
+				lerp(green(from), green(to), t),
+				lerp(blue(from), blue(to), t));
+	}
+
+	/**
+	 * Multiplies the color components by alpha.
+	 *
+	 * @param color the unpremultiplied color
+	 * @return the premultiplied color
+	 */
+	public static int premultiply(int color) {
+		int alpha = alpha(color);
+
+		if (alpha == 255) {
+			return color;
+		}
+
+		return (alpha << 24)
+				| (mulDiv255(red(color), alpha) << 16)
+				| (mulDiv255(green(color), alpha) << 8)
+				| mulDiv255(blue(color), alpha);
+	}
+
+	private static int lerp(int from, int to, float t) {
+		return Math.round(from + (to - from) * t);
+	}
+
+	private static int mulDiv255(int value, int alpha) {
+		int product = value * alpha + 128;
+		return (product + (product >> 8)) >> 8;
+	}
+
+	private static int clamp(int component) {
+		return Math.max(0, Math.min(255, component));
+	}
+}
@@ -1,9 +1,13 @@
 package cn.pupperclient.skimca.utils;
 
+import cn.pupperclient.skimca.SkimcaLogger;
 import io.github.humbleui.skija.Data;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.Optional;
 
 public class SkimcaUtils {
@@ -16,10 +20,47 @@ public class SkimcaUtils {
 		}
 	}
 
+	/**
+	 * Loads a resource as Skia {@link Data}. <br/>
+	 * Resources that live on disk (development runs, extracted resource packs) are
+	 * memory-mapped without copying them onto the Java heap; resources packed inside
+	 * a jar are streamed into a byte array instead.
+	 *
+	 * @param path the resource path, or a path to a file on disk
+	 * @return the resource data, or empty if it could not be read
+	 */
 	public static Optional<Data> convertToData(String path) {
+		Optional<File> file = resolveFile(path);
+
+		if (file.isPresent()) {
+			Optional<Data> mapped = convertToData(file.get());
+			if (mapped.isPresent()) {
+				return mapped;
+			}
+		}
+
 		return convertToBytes(path).map(Data::makeFromBytes);
 	}
 
+	/**
+	 * Memory-maps a file on disk as Skia {@link Data}, without a heap copy.
+	 *
+	 * @param file the file to map
+	 * @return the mapped data, or empty if the file could not be mapped
+	 */
+	public static Optional<Data> convertToData(File file) {
+		if (!file.isFile()) {
+			return Optional.empty();
+		}
+
+		try {
+			return Optional.ofNullable(Data.makeFromFileName(file.getAbsolutePath()));
+		} catch (RuntimeException e) {
+			SkimcaLogger.warn("SkimcaUtils", "Failed to map file " + file.getAbsolutePath() + ": " + e.getMessage());
+			return Optional.empty();
+		}
+	}
+
 	public static InputStream getResourceAsStream(String path) {
 		InputStream inputStream = SkimcaUtils.class.getResourceAsStream(path);
 		if (inputStream == null) {
@@ -27,4 +68,27 @@ public class SkimcaUtils {
 		}
 		return inputStream;
 	}
+
+	/**
+	 * Finds the file backing a resource, if the resource is a plain file on disk
+	 * rather than a jar entry. Paths that are not resources are tried as file paths.
+	 */
+	private static Optional<File> resolveFile(String path) {
+		URL url = SkimcaUtils.class.getResource(path);
+
+		if (url == null) {
+			File file = new File(path);
+			return file.isFile() ? Optional.of(file) : Optional.empty();
+		}
+
+		if (!"file".equals(url.getProtocol())) {
+			return Optional.empty();
+		}
+
+		try {
+			return Optional.of(new File(url.toURI()));
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			return Optional.empty();
+		}
+	}
 }
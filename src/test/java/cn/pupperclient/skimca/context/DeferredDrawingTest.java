@@ -0,0 +1,178 @@
+package cn.pupperclient.skimca.context;
+
+import cn.pupperclient.skimca.Skimca;
+import cn.pupperclient.skimca.font.FontHelper;
+import io.github.humbleui.skija.Bitmap;
+import io.github.humbleui.skija.Font;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Draws the same HUD with deferred drawing enabled and disabled on a {@link RasterBackend}
+ * surface and checks both frames are pixel-identical, so reordering, merging and folded
+ * translations in {@link DrawCommandBuffer} never change what ends up on screen. <br/>
+ * Coordinates are whole pixels, where merged rects and separately drawn ones cover exactly the same pixels.
+ */
+class DeferredDrawingTest {
+
+	private static final int WIDTH = 400;
+	private static final int HEIGHT = 300;
+
+	private static Font font;
+
+	@BeforeAll
+	static void openSurface() {
+		if (!(SkiaContext.getBackend() instanceof RasterBackend)) {
+			SkiaContext.setBackend(new RasterBackend());
+		}
+		SkiaContext.createSurface(WIDTH, HEIGHT);
+		font = FontHelper.loadFallback(12);
+	}
+
+	@AfterEach
+	void disableDeferred() {
+		SkiaContext.setDeferred(false);
+	}
+
+	@Test
+	void reorderedWidgetsMatchImmediate() {
+		long reordered = assertSameFrame(() -> {
+			// Interleaved background and accent per widget; the accents move back into one run
+			for (int i = 0; i < 6; i++) {
+				int x = 10 + i * 60;
+				Skimca.drawRect(x, 10, 50, 30, 0x80202020);
+				Skimca.drawRoundedRect(x + 5, 15, 40, 20, 4, 0xFFE04040);
+				Skimca.drawCircle(x + 25, 60, 8, 0xC040A0E0);
+			}
+		}).getCommandsReordered();
+
+		assertTrue(reordered > 0, "no command was reordered");
+	}
+
+	@Test
+	void mergedRectsAndLinesMatchImmediate() {
+		long batched = assertSameFrame(() -> {
+			// Rects sharing full edges, drawn as one
+			for (int i = 0; i < 8; i++) {
+				Skimca.drawRect(10 + i * 20, 100, 20, 12, 0xA0308030);
+			}
+			for (int i = 0; i < 4; i++) {
+				Skimca.drawRect(10, 120 + i * 10, 60, 10, 0xFF303080);
+			}
+
+			// A run of lines, drawn with one drawLines
+			for (int i = 0; i < 10; i++) {
+				Skimca.drawLine(100 + i * 12, 130, 110 + i * 12, 170, 2, 0xFFFFFFFF);
+			}
+		}).getCommandsBatched();
+
+		assertTrue(batched > 0, "no command was batched");
+	}
+
+	@Test
+	void textRunsMatchImmediate() {
+		DrawCommandBuffer stats = assertSameFrame(() -> {
+			for (int i = 0; i < 8; i++) {
+				int y = 10 + i * 20;
+				Skimca.drawRect(10, y, 120, 16, 0x90000000);
+				Skimca.drawText("Module " + i, 14, y + 2, 0xFFFFFFFF, font);
+				Skimca.drawRect(200, y, 120, 16, 0x90000000);
+				Skimca.drawText("Value " + (i * 37), 204, y + 2, 0xFFFFD040, font);
+			}
+		});
+
+		assertTrue(stats.getCommandsReordered() > 0, "no text was reordered into a run");
+	}
+
+	@Test
+	void foldedTranslationsMatchImmediate() {
+		DrawCommandBuffer stats = assertSameFrame(() -> {
+			for (int i = 0; i < 6; i++) {
+				Skimca.save();
+				Skimca.translate(10 + i * 60, 200);
+				Skimca.drawRoundedRect(0, 0, 50, 40, 6, 0xB0202020);
+
+				// Nested save, restored before anything reaches the canvas
+				Skimca.save();
+				Skimca.translate(4, 4);
+				Skimca.drawText("W" + i, 0, 0, 0xFFFFFFFF, font);
+				Skimca.restore();
+
+				Skimca.drawLine(0, 38, 50, 38, 2, 0xFF40E040);
+				Skimca.restore();
+			}
+		});
+
+		assertTrue(stats.getCommandsReordered() > 0, "no translated command was reordered");
+	}
+
+	@Test
+	void canvasAccessInsideTranslationMatchesImmediate() {
+		assertSameFrame(() -> {
+			for (int i = 0; i < 4; i++) {
+				Skimca.save();
+				Skimca.translate(20 + i * 90, 150);
+				Skimca.drawRect(0, 0, 80, 40, 0xFF404040);
+
+				// Clips go through the canvas, which then receives the pending save and translation
+				Skimca.clipRect(5, 5, 70, 30);
+				Skimca.drawRect(-10, -10, 100, 60, 0x80E0E040);
+				Skimca.drawText("Clip " + i, 8, 10, 0xFF000000, font);
+				Skimca.restore();
+
+				Skimca.drawRect(20 + i * 90, 195, 80, 4, 0xFF404040);
+			}
+		});
+	}
+
+	/**
+	 * Draws the HUD immediately and deferred, fails if the frames differ and returns the
+	 * command buffer, holding the statistics of the deferred frame.
+	 */
+	private static DrawCommandBuffer assertSameFrame(Runnable hud) {
+		byte[] immediate = render(false, hud);
+		assertEquals(0, SkiaContext.getCommandBuffer().getCommandsRecorded(), "immediate frame was deferred");
+		assertFalse(isBlank(immediate), "nothing was drawn");
+
+		byte[] deferred = render(true, hud);
+		DrawCommandBuffer stats = SkiaContext.getCommandBuffer();
+		assertTrue(stats.getCommandsRecorded() > 0, "deferred frame drew immediately");
+
+		for (int i = 0; i < immediate.length; i++) {
+			if (immediate[i] != deferred[i]) {
+				int pixel = i / 4;
+				fail("Deferred frame differs at (" + pixel % WIDTH + ", " + pixel / WIDTH + ")");
+			}
+		}
+
+		return stats;
+	}
+
+	private static byte[] render(boolean deferred, Runnable hud) {
+		// Takes effect from the next frame
+		SkiaContext.setDeferred(deferred);
+		SkiaContext.getCommandBuffer().resetStats();
+		SkiaContext.draw(canvas -> hud.run());
+
+		try (Bitmap bitmap = new Bitmap()) {
+			bitmap.allocN32Pixels(WIDTH, HEIGHT);
+			assertTrue(SkiaContext.getSurface().readPixels(bitmap, 0, 0), "could not read the surface");
+			return bitmap.readPixels();
+		}
+	}
+
+	private static boolean isBlank(byte[] pixels) {
+		for (byte value : pixels) {
+			if (value != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}